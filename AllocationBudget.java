@@ -0,0 +1,246 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+// this is an allocation regression check for the public operations of
+// Position, SimpleList, HashTable, HashMap, TentTree and the primitive sets/maps
+// every operation is run many times after a warm up, the bytes the thread
+// allocated are read from ThreadMXBean.getThreadAllocatedBytes() before and
+// after, and the bytes per operation are compared with a fixed budget.
+// Exits with status 1 if any operation is over its budget, so a build
+// script can run it after compiling: a change that makes a lookup allocate
+// fails right away.
+// Operations that walk a whole structure (rehash, toString, checkStatus)
+// are budgeted per item (entry or cell).
+// TO RUN: java AllocationBudget [REPS]
+// For example, java AllocationBudget 200000
+
+class AllocationBudget{
+
+	// one operation to measure; i counts the repetitions
+	private static abstract class Op{
+		abstract void run(int i);
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+	private static int reps;
+	private static int failures = 0;
+	private static int sink = 0;	// keeps results alive so the JIT cannot drop the work
+
+	// bytes allocated by this thread so far
+	private static long allocated(){
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// run op reps times (after as many warm up runs) and check the bytes per
+	// item, where every run touches perRun items
+	private static void check(String name, long budget, int perRun, Op op){
+		int n = Math.max(1, reps / perRun);
+		for (int i = 0; i < n; i++){
+			op.run(i);
+		}
+		long before = allocated();
+		for (int i = 0; i < n; i++){
+			op.run(i);
+		}
+		long after = allocated();
+		double bytes = (double)(after - before) / n / perRun;
+		// no object is smaller than 16 bytes, so less than one byte over is
+		// measurement noise (a stray allocation somewhere in millions of runs)
+		boolean ok = bytes < budget + 1;
+		if (!ok){
+			failures++;
+		}
+		System.out.println(String.format("%-34s %10.1f %8d  %s", name, bytes, budget, ok ? "ok" : "OVER BUDGET"));
+	}
+
+	public static void main(String[] args){
+		reps = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		if (!THREADS.isThreadAllocatedMemorySupported()){
+			System.out.println("allocation counting is not supported by this JVM");
+			return;
+		}
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+		System.out.println(String.format("%-34s %10s %8s", "operation", "bytes/op", "budget"));
+
+		// ---- Position
+		final Position[] cells = new Position[1024];
+		for (int i = 0; i < cells.length; i++){
+			cells[i] = new Position(i / 32, i % 32);
+		}
+		check("Position.hashCode", 0, 1, new Op(){
+			void run(int i){ sink += cells[i & 1023].hashCode(); }
+		});
+		check("Position.equals", 0, 1, new Op(){
+			void run(int i){ sink += cells[i & 1023].equals(cells[(i + 1) & 1023]) ? 1 : 0; }
+		});
+		check("Position.toString", 96, 1, new Op(){
+			void run(int i){ sink += cells[i & 1023].toString().length(); }
+		});
+
+		// ---- SimpleList
+		final SimpleList<Integer> list = new SimpleList<>();
+		final Integer[] boxed = new Integer[1024];
+		for (int i = 0; i < boxed.length; i++){
+			boxed[i] = i;
+		}
+		for (int i = 0; i < 16; i++){
+			list.add(boxed[i]);
+		}
+		check("SimpleList.contains", 0, 1, new Op(){
+			void run(int i){ sink += list.contains(boxed[i & 31]) ? 1 : 0; }
+		});
+		check("SimpleList.get", 0, 1, new Op(){
+			void run(int i){ sink += list.get(boxed[i & 15]) == null ? 0 : 1; }
+		});
+		check("SimpleList.indexOf", 0, 1, new Op(){
+			void run(int i){ sink += list.indexOf(boxed[i & 31]); }
+		});
+		check("SimpleList.add+remove", 32, 1, new Op(){
+			void run(int i){
+				list.add(boxed[100]);
+				sink += list.remove(boxed[100]) ? 1 : 0;
+			}
+		});
+		check("SimpleList.iterator (16 items)", 2, 16, new Op(){
+			void run(int i){
+				for (Integer v : list){
+					sink += v;
+				}
+			}
+		});
+
+		// ---- HashTable
+		final int numKeys = 1 << 14;
+		final Integer[] keys = new Integer[2 * numKeys];
+		for (int i = 0; i < keys.length; i++){
+			keys[i] = i * 7;
+		}
+		final HashTable<Integer> table = new HashTable<>();
+		final HashTable<Integer> filtered = new HashTable<>(true);
+		for (int i = 0; i < numKeys; i++){
+			table.add(keys[i]);
+			filtered.add(keys[i]);
+		}
+		check("HashTable.contains (hit)", 0, 1, new Op(){
+			void run(int i){ sink += table.contains(keys[i & (numKeys - 1)]) ? 1 : 0; }
+		});
+		check("HashTable.contains (miss)", 0, 1, new Op(){
+			void run(int i){ sink += table.contains(keys[numKeys + (i & (numKeys - 1))]) ? 1 : 0; }
+		});
+		check("HashTable.contains (filter, miss)", 0, 1, new Op(){
+			void run(int i){ sink += filtered.contains(keys[numKeys + (i & (numKeys - 1))]) ? 1 : 0; }
+		});
+		check("HashTable.get", 0, 1, new Op(){
+			void run(int i){ sink += table.get(keys[i & (numKeys - 1)]) == null ? 0 : 1; }
+		});
+		check("HashTable.add+remove", 48, 1, new Op(){
+			void run(int i){
+				Integer k = keys[numKeys + (i & (numKeys - 1))];
+				table.add(k);
+				sink += table.remove(k) ? 1 : 0;
+			}
+		});
+		check("HashTable.size/getLoad", 0, 1, new Op(){
+			void run(int i){ sink += table.size() + (int)table.getLoad(); }
+		});
+		final int[] capacities = {table.nextPrime(table.capacity() * 2), table.capacity()};
+		check("HashTable.rehash (per entry)", 128, numKeys, new Op(){
+			void run(int i){ sink += table.rehash(capacities[i & 1]) ? 1 : 0; }
+		});
+
+		// ---- primitive siblings: no boxing, so no allocation at all on lookups
+		final IntHashSet ints = new IntHashSet();
+		final LongObjectMap<String> longs = new LongObjectMap<>();
+		for (int i = 0; i < numKeys; i++){
+			ints.add(i * 7);
+			longs.add(TentTree.zobristKey(i, i, true), "X");
+		}
+		check("IntHashSet.contains", 0, 1, new Op(){
+			void run(int i){ sink += ints.contains(i * 7) ? 1 : 0; }
+		});
+		check("IntHashSet.add+remove", 0, 1, new Op(){
+			void run(int i){
+				ints.add(-1 - i);
+				sink += ints.remove(-1 - i) ? 1 : 0;
+			}
+		});
+		check("LongObjectMap.get", 0, 1, new Op(){
+			void run(int i){ sink += longs.get(TentTree.zobristKey(i & (numKeys - 1), i, true)) == null ? 0 : 1; }
+		});
+
+		// ---- HashMap
+		final HashMap<Position, String> map = new HashMap<>();
+		for (int i = 0; i < cells.length; i += 2){
+			map.add(cells[i], "X");
+		}
+		check("HashMap.get (hit)", 24, 1, new Op(){
+			void run(int i){ sink += map.get(cells[(i & 511) * 2]) == null ? 0 : 1; }
+		});
+		check("HashMap.get (miss)", 24, 1, new Op(){
+			void run(int i){ sink += map.get(cells[(i & 511) * 2 + 1]) == null ? 0 : 1; }
+		});
+		check("HashMap.contains", 24, 1, new Op(){
+			void run(int i){ sink += map.contains(cells[i & 1023]) ? 1 : 0; }
+		});
+		check("HashMap.has", 24, 1, new Op(){
+			void run(int i){ sink += map.has(cells[i & 1023], "X") ? 1 : 0; }
+		});
+		check("HashMap.update", 24, 1, new Op(){
+			void run(int i){ sink += map.update(cells[(i & 511) * 2], "X") ? 1 : 0; }
+		});
+
+		// ---- TentTree (small enough for its PaddedGrid, so cell reads do not allocate)
+		final int side = 32;
+		final TentTree game = new TentTree(side, side);
+		for (int r = 0; r < side; r += 2){
+			for (int c = 0; c < side; c += 4){
+				game.addTree(new Position(r, c));
+				if (c + 1 < side){
+					game.addTent(new Position(r, c + 1));
+				}
+			}
+		}
+		check("TentTree.get", 0, 1, new Op(){
+			void run(int i){ sink += game.get(cells[i & 1023]) == null ? 0 : 1; }
+		});
+		check("TentTree.hasTent", 0, 1, new Op(){
+			void run(int i){ sink += game.hasTent(cells[i & 1023]) ? 1 : 0; }
+		});
+		check("TentTree.isValidPosition", 0, 1, new Op(){
+			void run(int i){ sink += game.isValidPosition(cells[i & 1023]) ? 1 : 0; }
+		});
+		check("TentTree.posHasNbr", 0, 1, new Op(){
+			void run(int i){ sink += game.posHasNbr(cells[i & 1023], "O") ? 1 : 0; }
+		});
+		check("TentTree.posTouching", 0, 1, new Op(){
+			void run(int i){ sink += game.posTouching(cells[i & 1023], "X") ? 1 : 0; }
+		});
+		check("TentTree.zobristHash", 0, 1, new Op(){
+			void run(int i){ sink += (int)game.zobristHash(); }
+		});
+		final Position spare = new Position(1, 2);
+		check("TentTree.addTent+removeTent", 48, 1, new Op(){
+			void run(int i){
+				game.addTent(spare);
+				sink += game.removeTent(spare) ? 1 : 0;
+			}
+		});
+		check("TentTree.checkStatus (per cell)", 256, side * side, new Op(){
+			void run(int i){ sink += game.checkStatus(); }
+		});
+		// without the render cache: toString() of an unchanged board is all cache hits
+		check("TentTree.renderUncached (per cell)", 64, side * side, new Op(){
+			void run(int i){ sink += game.renderUncached().length(); }
+		});
+
+		System.out.println(failures == 0 ? "all operations within budget" : failures + " operation(s) over budget");
+		if (sink == 42){
+			System.out.println();	// never printed in practice, only uses sink
+		}
+		if (failures > 0){
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,403 @@
+import java.util.Arrays;
+
+/**
+ * This class holds many small tent-tree boards in a few shared primitive arrays
+ * (struct of arrays): the size of board b is rows[b] x cols[b] and its cells are
+ * cells[offset[b] .. offset[b] + rows[b]*cols[b] - 1], row-major, one byte each.
+ * There is no TentTree, HashMap or Position object per board, so checking or
+ * solving millions of boards like puzzles/puzzle1.txt runs in tight loops over
+ * flat arrays with a handful of shared scratch arrays.
+ *
+ * checkAll() returns the same status codes as TentTree.checkStatus() (row/column
+ * clues are not part of a batch).
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class BoardBatch{
+
+	// boards bigger than this belong in a TentTree
+	static final int MAX_CELLS = 1 << 16;
+
+	private int numBoards = 0;
+	private int[] rows, cols, offset;
+	private byte[] cells;
+	private int numCells = 0;
+
+	// scratch shared by all boards, sized for the largest board
+	private int[] treeMatch = new int[0];	// cell of the tent matched to the tree at each cell, or -1
+	private int[] seen = new int[0];	// visit stamps of the matching search
+	private int stamp = 0;
+	private int[] list = new int[0];	// tents (check) or trees (solve) of the current board
+	private int[] choice = new int[0];	// solve: next direction per tree
+	private int[] placed = new int[0];	// solve: tent cell per tree
+	private int[] tents = new int[0];	// solve: tents the board had before
+
+	private static final int[] DR = {-1, 1, 0, 0, -1, -1, 1, 1};
+	private static final int[] DC = {0, 0, -1, 1, -1, 1, -1, 1};
+
+	/**
+	 * Constructor
+	 * @param expectedBoards number of boards to make room for
+	 * @param expectedCells total cells to make room for
+	 */
+	public BoardBatch(int expectedBoards, int expectedCells){
+		rows = new int[Math.max(1, expectedBoards)];
+		cols = new int[rows.length];
+		offset = new int[rows.length];
+		cells = new byte[Math.max(1, expectedCells)];
+	}
+
+	/**
+	 * Constructor with room for 1024 boards
+	 */
+	public BoardBatch(){
+		this(1024, 1024 * 16);
+	}
+
+	/**
+	 * Add an empty board
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @return board index
+	 */
+	public int addBoard(int numRows, int numCols){
+		if (numRows <= 0 || numCols <= 0 || (long)numRows * numCols > MAX_CELLS){
+			throw new RuntimeException("invalid board size for a batch!");
+		}
+		if (numBoards == rows.length){
+			rows = Arrays.copyOf(rows, numBoards * 2);
+			cols = Arrays.copyOf(cols, numBoards * 2);
+			offset = Arrays.copyOf(offset, numBoards * 2);
+		}
+		int area = numRows * numCols;
+		if ((long)numCells + area > Integer.MAX_VALUE){
+			throw new RuntimeException("batch is full!");
+		}
+		if (numCells + area > cells.length){
+			cells = Arrays.copyOf(cells, (int)Math.min(Integer.MAX_VALUE, Math.max((long)cells.length * 2, (long)numCells + area)));
+		}
+		rows[numBoards] = numRows;
+		cols[numBoards] = numCols;
+		offset[numBoards] = numCells;
+		numCells += area;
+		if (area > treeMatch.length){
+			treeMatch = new int[area];
+			seen = new int[area];
+			list = new int[area];
+			choice = new int[area];
+			placed = new int[area];
+			tents = new int[area];
+		}
+		return numBoards++;
+	}
+
+	/**
+	 * Add a copy of a board
+	 * @param game board
+	 * @return board index
+	 */
+	public int add(TentTree game){
+		int b = addBoard(game.numRows(), game.numCols());
+		for (Position pos : game.getOccupiedCellsInOrder()){
+			cells[offset[b] + pos.getRow() * cols[b] + pos.getCol()] = game.hasTent(pos) ? CellCode.TENT : CellCode.TREE;
+		}
+		return b;
+	}
+
+	/**
+	 * Set one cell of a board
+	 * @param board board index
+	 * @param row row
+	 * @param col col
+	 * @param code EMPTY, TENT or TREE
+	 */
+	public void setCell(int board, int row, int col, byte code){
+		cells[offset[board] + row * cols[board] + col] = code;
+	}
+
+	/**
+	 * Get one cell of a board
+	 * @param board board index
+	 * @param row row
+	 * @param col col
+	 * @return EMPTY, TENT or TREE
+	 */
+	public byte getCell(int board, int row, int col){
+		return cells[offset[board] + row * cols[board] + col];
+	}
+
+	/**
+	 * Get number of boards
+	 * @return size
+	 */
+	public int size(){
+		return numBoards;
+	}
+
+	/**
+	 * Check every board, with the codes of TentTree.checkStatus()
+	 * @return status per board
+	 */
+	public int[] checkAll(){
+		int[] status = new int[numBoards];
+		for (int b = 0; b < numBoards; b++){
+			status[b] = check(b);
+		}
+		return status;
+	}
+
+	/**
+	 * Solve every board from its trees: existing tents are replaced by the
+	 * first solution found; a board with no solution (0 or -1) keeps the
+	 * tents it had
+	 * @param maxSteps search budget per board
+	 * @return per board 1 if solved, 0 if it has no solution (or no trees, which
+	 *   checkAll() reports as invalid), -1 if out of budget
+	 */
+	public int[] solveAll(long maxSteps){
+		int[] result = new int[numBoards];
+		for (int b = 0; b < numBoards; b++){
+			result[b] = solve(b, maxSteps);
+		}
+		return result;
+	}
+
+	// status of one board, same rules as TentTree.checkStatus()
+	private int check(int b){
+		int base = offset[b], nr = rows[b], nc = cols[b], area = nr * nc;
+		int numTents = 0, numTrees = 0;
+		for (int i = 0; i < area; i++){
+			byte code = cells[base + i];
+			if (code == CellCode.TREE){
+				numTrees++;
+				treeMatch[i] = -1;
+			}
+			else if (code == CellCode.TENT){
+				list[numTents++] = i;
+			}
+		}
+		if (numTrees == 0){
+			return 0;
+		}
+		for (int t = 0; t < numTents; t++){
+			int r = list[t] / nc, c = list[t] % nc;
+			boolean hasTree = false;
+			for (int d = 0; d < 8; d++){
+				int nr2 = r + DR[d], nc2 = c + DC[d];
+				if (nr2 < 0 || nr2 >= nr || nc2 < 0 || nc2 >= nc){
+					continue;
+				}
+				byte code = cells[base + nr2 * nc + nc2];
+				if (code == CellCode.TENT){
+					return 3;
+				}
+				hasTree |= d < 4 && code == CellCode.TREE;
+			}
+			if (!hasTree){
+				return 3;
+			}
+		}
+		for (int t = 0; t < numTents; t++){
+			stamp++;
+			if (!augment(list[t], base, nr, nc)){
+				return 3;
+			}
+		}
+		return numTents < numTrees ? 2 : 1;
+	}
+
+	// Kuhn's augmenting path from the tent at cell tent; boards are small,
+	// so the recursion stays shallow
+	private boolean augment(int tent, int base, int nr, int nc){
+		int r = tent / nc, c = tent % nc;
+		for (int d = 0; d < 4; d++){
+			int tr = r + DR[d], tc = c + DC[d];
+			if (tr < 0 || tr >= nr || tc < 0 || tc >= nc){
+				continue;
+			}
+			int tree = tr * nc + tc;
+			if (cells[base + tree] != CellCode.TREE || seen[tree] == stamp){
+				continue;
+			}
+			seen[tree] = stamp;
+			if (treeMatch[tree] < 0 || augment(treeMatch[tree], base, nr, nc)){
+				treeMatch[tree] = tent;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// backtracking: every tree in turn puts its tent on a free 4-way
+	// neighbor that touches no other tent
+	private int solve(int b, long maxSteps){
+		int base = offset[b], nr = rows[b], nc = cols[b], area = nr * nc;
+		int n = 0, numTents = 0;
+		for (int i = 0; i < area; i++){
+			if (cells[base + i] == CellCode.TENT){
+				cells[base + i] = CellCode.EMPTY;
+				tents[numTents++] = i;
+			}
+			else if (cells[base + i] == CellCode.TREE){
+				list[n++] = i;
+			}
+		}
+		if (n == 0){
+			// no trees: not a valid puzzle, as check() says
+			restoreTents(base, numTents);
+			return 0;
+		}
+		int i = 0;
+		choice[0] = 0;
+		long steps = 0;
+		while (i >= 0 && i < n){
+			if (++steps > maxSteps){
+				for (int k = 0; k < i; k++){
+					cells[base + placed[k]] = CellCode.EMPTY;
+				}
+				restoreTents(base, numTents);
+				return -1;
+			}
+			boolean advanced = false;
+			int r = list[i] / nc, c = list[i] % nc;
+			while (!advanced && choice[i] < 4){
+				int d = choice[i]++;
+				int tr = r + DR[d], tc = c + DC[d];
+				if (tr >= 0 && tr < nr && tc >= 0 && tc < nc && cells[base + tr * nc + tc] == CellCode.EMPTY
+					&& !touchesTent(base, nr, nc, tr, tc)){
+					cells[base + tr * nc + tc] = CellCode.TENT;
+					placed[i++] = tr * nc + tc;
+					if (i < n){
+						choice[i] = 0;
+					}
+					advanced = true;
+				}
+			}
+			if (!advanced && --i >= 0){
+				cells[base + placed[i]] = CellCode.EMPTY;
+			}
+		}
+		if (i < n){
+			// every placement is undone already
+			restoreTents(base, numTents);
+			return 0;
+		}
+		return 1;
+	}
+
+	// put back the tents solve() took off a board it could not solve
+	private void restoreTents(int base, int numTents){
+		for (int k = 0; k < numTents; k++){
+			cells[base + tents[k]] = CellCode.TENT;
+		}
+	}
+
+	private boolean touchesTent(int base, int nr, int nc, int r, int c){
+		for (int d = 0; d < 8; d++){
+			int r2 = r + DR[d], c2 = c + DC[d];
+			if (r2 >= 0 && r2 < nr && c2 >= 0 && c2 < nc && cells[base + r2 * nc + c2] == CellCode.TENT){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// also times checking a batch of small generated boards against
+	// one TentTree per board. Usage: java BoardBatch [NUM_BOARDS]
+
+	public static void main(String[] args) throws java.io.IOException{
+		BoardBatch batch = new BoardBatch(4, 16);
+		String[] names = {"puzzle1", "puzzle2", "puzzle4", "puzzle5", "puzzle6", "puzzle7"};
+		boolean same = true;
+		for (String name : names){
+			TentTree game = PA2.readGame("puzzles/" + name + ".txt");
+			int b = batch.add(game);
+			// the batch has no clues, so compare with a clue-less copy
+			TentTree plain = new TentTree(game.numRows(), game.numCols(), game.getTentSymbol(), game.getTreeSymbol());
+			for (int r = 0; r < game.numRows(); r++){
+				for (int c = 0; c < game.numCols(); c++){
+					Position pos = new Position(r, c);
+					if (game.get(pos) != null){
+						plain.set(pos, game.get(pos));
+					}
+				}
+			}
+			same &= batch.checkAll()[b] == plain.checkStatus();
+		}
+		if (same && batch.size() == names.length){
+			System.out.println("Yay 1");
+		}
+
+		int[] solved = batch.solveAll(1000000);
+		int[] after = batch.checkAll();
+		boolean allSolved = true;
+		for (int b = 0; b < batch.size(); b++){
+			allSolved &= solved[b] == 1 && after[b] == 1;
+		}
+		if (allSolved){
+			System.out.println("Yay 2");
+		}
+
+		// a board without trees is invalid for both check and solve
+		BoardBatch empty = new BoardBatch(2, 18);
+		empty.addBoard(3, 3);
+		int withTent = empty.addBoard(3, 3);
+		empty.setCell(withTent, 1, 1, CellCode.TENT);
+		int[] emptyStatus = empty.checkAll();
+		int[] emptySolved = empty.solveAll(1000);
+		if (emptyStatus[0] == 0 && emptyStatus[1] == 0 && emptySolved[0] == 0 && emptySolved[1] == 0
+			&& new TentTree(3, 3).checkStatus() == 0 && empty.checkAll()[1] == 0){
+			System.out.println("Yay 3");
+		}
+
+		// a board solve() gives up on keeps the tents it had
+		BoardBatch stuck = new BoardBatch(2, 12);
+		int none = stuck.addBoard(1, 3);
+		stuck.setCell(none, 0, 0, CellCode.TREE);
+		stuck.setCell(none, 0, 1, CellCode.TREE);
+		stuck.setCell(none, 0, 2, CellCode.TENT);
+		int budget = stuck.addBoard(3, 3);
+		stuck.setCell(budget, 1, 1, CellCode.TREE);
+		stuck.setCell(budget, 0, 1, CellCode.TENT);
+		int[] outOfBudget = stuck.solveAll(0);
+		boolean kept = stuck.getCell(budget, 0, 1) == CellCode.TENT;
+		int[] again = stuck.solveAll(1000);
+		if (outOfBudget[budget] == -1 && kept && again[none] == 0 && again[budget] == 1
+			&& stuck.getCell(none, 0, 2) == CellCode.TENT && stuck.getCell(none, 0, 1) == CellCode.TREE
+			&& empty.getCell(withTent, 1, 1) == CellCode.TENT){
+			System.out.println("Yay 4");
+		}
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		BoardBatch big = new BoardBatch(n, n * 36);
+		TentTree[] trees = new TentTree[n];
+		for (int k = 0; k < n; k++){
+			PuzzleGenerator g = new PuzzleGenerator(6, 6, k, 0.2);
+			int b = big.addBoard(6, 6);
+			for (int r = 0; r < 6; r++){
+				for (int c = 0; c < 6; c++){
+					big.setCell(b, r, c, g.cell(r, c));
+				}
+			}
+			trees[k] = g.toTentTree(true);
+		}
+		long start = System.nanoTime();
+		int[] status = big.checkAll();
+		long mid = System.nanoTime();
+		int agree = 0;
+		for (int k = 0; k < n; k++){
+			if (trees[k].checkStatus() == status[k]){
+				agree++;
+			}
+		}
+		long end = System.nanoTime();
+		System.out.println(n + " boards of 6 x 6: batch " + (mid - start) / 1000000 + " ms, one TentTree each "
+			+ (end - mid) / 1000000 + " ms");
+		if (agree == n){
+			System.out.println("Yay 5");
+		}
+	}
+}
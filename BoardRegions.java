@@ -0,0 +1,489 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class splits a TentTree into independent regions: groups of trees whose
+ * tents can never affect each other. The spots of a tree are its 4-way neighbors
+ * that are not trees (where its tent may go); two trees are in the same region
+ * if a spot of one is a spot of the other or touches it (8-way). Every tent on a
+ * spot therefore belongs to exactly one region, and tents of different regions
+ * can neither touch nor share a tree.
+ *
+ * checkStatus() checks the regions on their own, in parallel, and combines the
+ * results; solve() solves them in parallel. Each region is checked on a small
+ * board cut out of its bounding box. The regions follow the board through a
+ * ChangeStream: a tent change only marks its own region dirty, so a check
+ * recomputes just the regions that changed. Adding a tree (or losing track of
+ * changes) rebuilds the decomposition.
+ *
+ * Row/column clues tie all regions together. They are checked on the whole
+ * board, and a board with clues is solved as a whole.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class BoardRegions{
+
+	// one region: its trees, their spots, and the status of its last check
+	private static class Region{
+		List<Position> trees = new ArrayList<>();
+		List<Position> spots = new ArrayList<>();
+		int top = Integer.MAX_VALUE, left = Integer.MAX_VALUE, bottom = -1, right = -1;
+		boolean dirty = true;
+		int status;
+		String detail;
+
+		void cover(Position pos){
+			top = Math.min(top, pos.getRow());
+			bottom = Math.max(bottom, pos.getRow());
+			left = Math.min(left, pos.getCol());
+			right = Math.max(right, pos.getCol());
+		}
+
+		// the region cut out of the board: its trees and the tents on its spots
+		TentTree cut(TentTree game){
+			TentTree sub = new TentTree(bottom - top + 1, right - left + 1, game.getTentSymbol(), game.getTreeSymbol());
+			for (Position tree : trees){
+				sub.addTree(new Position(tree.getRow() - top, tree.getCol() - left));
+			}
+			for (Position spot : spots){
+				if (game.hasTent(spot)){
+					sub.addTent(new Position(spot.getRow() - top, spot.getCol() - left));
+				}
+			}
+			return sub;
+		}
+
+		// a detail of the cut board, with the positions moved back onto the board
+		String uncut(String detail){
+			StringBuilder sb = new StringBuilder();
+			int from = 0, open;
+			while ((open = detail.indexOf('<', from)) >= 0){
+				int comma = detail.indexOf(',', open), close = detail.indexOf('>', open);
+				sb.append(detail, from, open);
+				sb.append(new Position(Integer.parseInt(detail.substring(open + 1, comma)) + top,
+					Integer.parseInt(detail.substring(comma + 1, close)) + left));
+				from = close + 1;
+			}
+			return sb.append(detail.substring(from)).toString();
+		}
+	}
+
+	private final TentTree game;
+	private final ChangeStream stream;
+	private final ChangeStream.Listener listener;
+	private Region[] regions = new Region[0];
+	private LongObjectMap<Region> regionOf;	// cell (row * numCols + col) of every tree and spot
+	private LongHashSet orphans;	// tents on no spot
+	private boolean rebuild = true;
+	private String statusDetail = "";
+	private long regionChecks = 0;
+
+	/**
+	 * Constructor; the regions follow every later change of the board
+	 * @param game board
+	 */
+	public BoardRegions(TentTree game){
+		this.game = game;
+		this.stream = new ChangeStream(game, 1 << 12, 1 << 12, true, false);
+		this.listener = new ChangeStream.Listener(){
+			public void onChanges(ChangeStream.Batch batch){
+				changed(batch);
+			}
+		};
+		stream.subscribe(listener);
+	}
+
+	/**
+	 * Stop following the board
+	 */
+	public void close(){
+		stream.unsubscribe(listener);
+	}
+
+	private long cell(int row, int col){
+		return (long)row * game.numCols() + col;
+	}
+
+	// mark the regions of changed cells dirty
+	private void changed(ChangeStream.Batch batch){
+		if (batch.overflowed()){
+			rebuild = true;
+		}
+		for (int i = 0; i < batch.size() && !rebuild; i++){
+			if (batch.getOldCode(i) == CellCode.TREE || batch.getNewCode(i) == CellCode.TREE){
+				rebuild = true;
+				break;
+			}
+			long key = cell(batch.getRow(i), batch.getCol(i));
+			Region region = regionOf.get(key);
+			if (region != null)
+				region.dirty = true;
+			else if (batch.getNewCode(i) == CellCode.TENT)
+				orphans.add(key);
+			else
+				orphans.remove(key);
+		}
+	}
+
+	// catch up with the board
+	private void refresh(){
+		while (stream.deliver() > 0){
+		}
+		if (rebuild){
+			decompose();
+			rebuild = false;
+		}
+	}
+
+	private static int find(int[] parent, int i){
+		while (parent[i] != i){
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int a, int b){
+		parent[find(parent, a)] = find(parent, b);
+	}
+
+	// union-find over the trees, joined through shared or touching spots
+	private void decompose(){
+		List<Position> trees = new ArrayList<>();
+		List<Position> tents = new ArrayList<>();
+		// row-major, so regions are numbered by their first tree on the board
+		for (Position pos : game.getOccupiedCellsInOrder()){
+			if (game.hasTent(pos))
+				tents.add(pos);
+			else
+				trees.add(pos);
+		}
+		int[] parent = new int[trees.size()];
+		LongObjectMap<int[]> spotOwner = new LongObjectMap<>(HashStrategy.MURMUR3);
+		for (int i = 0; i < trees.size(); i++){
+			parent[i] = i;
+			for (Position spot : nbrs(trees.get(i), 4)){
+				if (!game.isValidPosition(spot) || game.getTreeSymbol().equals(game.get(spot))){
+					continue;
+				}
+				int[] owner = spotOwner.get(cell(spot.getRow(), spot.getCol()));
+				if (owner != null)
+					union(parent, i, owner[0]);
+				else
+					spotOwner.add(cell(spot.getRow(), spot.getCol()), new int[]{i});
+			}
+		}
+		long[] spots = spotOwner.keysToArray();
+		int numCols = game.numCols();
+		for (long key : spots){
+			int owner = spotOwner.get(key)[0];
+			for (Position nbr : nbrs(new Position((int)(key / numCols), (int)(key % numCols)), 8)){
+				int[] other = game.isValidPosition(nbr) ? spotOwner.get(cell(nbr.getRow(), nbr.getCol())) : null;
+				if (other != null){
+					union(parent, owner, other[0]);
+				}
+			}
+		}
+
+		IntObjectMap<Region> byRoot = new IntObjectMap<>();
+		List<Region> list = new ArrayList<>();
+		regionOf = new LongObjectMap<>(HashStrategy.MURMUR3);
+		for (int i = 0; i < trees.size(); i++){
+			int root = find(parent, i);
+			Region region = byRoot.get(root);
+			if (region == null){
+				region = new Region();
+				byRoot.add(root, region);
+				list.add(region);
+			}
+			region.trees.add(trees.get(i));
+			region.cover(trees.get(i));
+			regionOf.add(cell(trees.get(i).getRow(), trees.get(i).getCol()), region);
+		}
+		for (long key : spots){
+			Region region = byRoot.get(find(parent, spotOwner.get(key)[0]));
+			Position spot = new Position((int)(key / numCols), (int)(key % numCols));
+			region.spots.add(spot);
+			region.cover(spot);
+			regionOf.add(key, region);
+		}
+		regions = list.toArray(new Region[0]);
+		orphans = new LongHashSet(HashStrategy.MURMUR3);
+		for (Position tent : tents){
+			long key = cell(tent.getRow(), tent.getCol());
+			if (regionOf.get(key) == null){
+				orphans.add(key);
+			}
+		}
+	}
+
+	private static Position[] nbrs(Position pos, int n){
+		int r = pos.getRow(), c = pos.getCol();
+		if (n == 4){
+			return new Position[]{new Position(r-1, c), new Position(r+1, c), new Position(r, c-1), new Position(r, c+1)};
+		}
+		return new Position[]{new Position(r-1, c-1), new Position(r-1, c), new Position(r-1, c+1), new Position(r, c-1),
+			new Position(r, c+1), new Position(r+1, c-1), new Position(r+1, c), new Position(r+1, c+1)};
+	}
+
+	// run every task, in parallel if there is more than one
+	private static <T> List<T> runAll(List<Callable<T>> tasks){
+		List<T> results = new ArrayList<>();
+		try {
+			if (tasks.size() == 1){
+				results.add(tasks.get(0).call());
+				return results;
+			}
+			for (Future<T> f : ForkJoinPool.commonPool().invokeAll(tasks)){
+				results.add(f.get());
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("region task interrupted!", e);
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException("region task failed!", e.getCause());
+		}
+		catch(Exception e) {
+			// thrown by the only task, run on this thread
+			throw new RuntimeException("region task failed!", e);
+		}
+		return results;
+	}
+
+	/**
+	 * Get number of regions
+	 * @return regions
+	 */
+	public int numRegions(){
+		refresh();
+		return regions.length;
+	}
+
+	/**
+	 * Get the number of region checks done so far (a clean region is not checked again)
+	 * @return region checks
+	 */
+	public long getRegionChecks(){ return regionChecks;}
+
+	/**
+	 * Check the board region by region; same codes as TentTree.checkStatus()
+	 * @return an integer to indicate the status
+	 */
+	public int checkStatus(){
+		refresh();
+		if (regions.length == 0){
+			statusDetail = "no tree on the board";
+			return 0;
+		}
+		if (game.cluesExceeded()){
+			statusDetail = game.clueIssue(true);
+			return 3;
+		}
+		long[] lost = orphans.toArray();
+		if (lost.length > 0){
+			int numCols = game.numCols();
+			statusDetail = "tent at " + new Position((int)(lost[0] / numCols), (int)(lost[0] % numCols)) + " is not next to any tree";
+			return 3;
+		}
+
+		// cut the dirty regions here, check them in parallel
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (final Region region : regions){
+			if (region.dirty){
+				final TentTree sub = region.cut(game);
+				tasks.add(new Callable<Integer>(){
+					public Integer call(){
+						String[] detail = new String[1];
+						region.status = sub.checkStatus(detail);
+						region.detail = region.uncut(detail[0]);
+						region.dirty = false;
+						return region.status;
+					}
+				});
+			}
+		}
+		runAll(tasks);
+		regionChecks += tasks.size();
+
+		Region unfinished = null;
+		for (Region region : regions){
+			if (region.status == 3){
+				statusDetail = region.detail;
+				return 3;
+			}
+			if (region.status == 2 && unfinished == null){
+				unfinished = region;
+			}
+		}
+		if (unfinished != null){
+			statusDetail = unfinished.detail;
+			return 2;
+		}
+		if (!game.cluesSatisfied()){
+			statusDetail = game.clueIssue(false);
+			return 3;
+		}
+		statusDetail = "";
+		return 1;
+	}
+
+	/**
+	 * Get the issue found by the last checkStatus()
+	 * @return description, empty if the board was solved
+	 */
+	public String getStatusDetail(){
+		return statusDetail;
+	}
+
+	/**
+	 * Solve the board region by region, in parallel; tents are only added to the
+	 * board if every region is solved
+	 * @param maxSteps search budget per region
+	 * @return 1 if solved, 0 if there is no solution, -1 if out of budget
+	 */
+	public int solve(final long maxSteps){
+		int status = checkStatus();
+		if (status == 0 || status == 3){
+			return 0;
+		}
+		if (game.hasClues()){
+			// the clues tie all regions together
+			return new TentSolver(game, new TranspositionTable(1 << 20)).solve(maxSteps);
+		}
+		List<Callable<int[]>> tasks = new ArrayList<>();
+		final List<TentTree> subs = new ArrayList<>();
+		final List<Region> open = new ArrayList<>();
+		for (Region region : regions){
+			if (region.status == 2){
+				final TentTree sub = region.cut(game);
+				subs.add(sub);
+				open.add(region);
+				tasks.add(new Callable<int[]>(){
+					public int[] call(){
+						return new int[]{new TentSolver(sub, new TranspositionTable(1 << 16)).solve(maxSteps)};
+					}
+				});
+			}
+		}
+		List<int[]> results = runAll(tasks);
+		int result = 1;
+		for (int[] r : results){
+			result = Math.min(result, r[0] == 0 ? -2 : r[0]);
+		}
+		if (result < 1){
+			return result == -2 ? 0 : -1;
+		}
+		for (int i = 0; i < subs.size(); i++){
+			Region region = open.get(i);
+			for (Position spot : region.spots){
+				Position local = new Position(spot.getRow() - region.top, spot.getCol() - region.left);
+				if (subs.get(i).hasTent(local) && !game.hasTent(spot)){
+					game.addTent(spot);
+				}
+			}
+		}
+		return 1;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// also compares with TentTree.checkStatus() and TentSolver on a big
+	// generated board. Usage: java BoardRegions [SIDE]
+
+	public static void main(String[] args){
+		TentTree game = new TentTree(6, 9);
+		game.addTree(new Position(1, 1));
+		game.addTree(new Position(2, 2));
+		game.addTree(new Position(1, 7));
+		game.addTent(new Position(1, 2));
+		BoardRegions regions = new BoardRegions(game);
+		if (regions.numRegions() == 2 && regions.checkStatus() == game.checkStatus()
+			&& regions.getStatusDetail().equals(game.getStatusDetail())){
+			System.out.println("Yay 1");
+		}
+
+		// one change only rechecks its own region
+		long before = regions.getRegionChecks();
+		game.addTent(new Position(0, 7));
+		int status = regions.checkStatus();
+		game.addTent(new Position(4, 4));
+		if (status == 2 && regions.getRegionChecks() == before + 1 && regions.checkStatus() == 3
+			&& regions.getStatusDetail().equals("tent at <4,4> is not next to any tree")){
+			System.out.println("Yay 2");
+		}
+		game.removeTent(new Position(4, 4));
+		if (regions.solve(100000) == 1 && game.checkStatus() == 1 && regions.checkStatus() == 1){
+			System.out.println("Yay 3");
+		}
+		regions.close();
+
+		// random tents on generated boards: same answer as the whole-board check
+		boolean same = true;
+		Random rand = new Random(43);
+		for (int k = 0; k < 50; k++){
+			TentTree board = new PuzzleGenerator(12, 12, k, 0.15).toTentTree(k % 2 == 0);
+			BoardRegions split = new BoardRegions(board);
+			for (int m = 0; m < 10; m++){
+				Position pos = new Position(rand.nextInt(12), rand.nextInt(12));
+				if (!board.removeTent(pos)){
+					board.addTent(pos);
+				}
+				same &= split.checkStatus() == board.checkStatus();
+			}
+			split.close();
+		}
+		if (same){
+			System.out.println("Yay 4");
+		}
+
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		TentTree big = new PuzzleGenerator(side, side, 7, 0.06).toTentTree(false);
+		TentTree copy = new PuzzleGenerator(side, side, 7, 0.06).toTentTree(false);
+		BoardRegions split = new BoardRegions(big);
+		long start = System.nanoTime();
+		int solved = split.solve(1000000);
+		long mid = System.nanoTime();
+		int whole = new TentSolver(copy, new TranspositionTable(1 << 20)).solve(1000000);
+		long end = System.nanoTime();
+		System.out.println(side + " x " + side + ", " + split.numRegions() + " regions: solved by region " + solved + " in "
+			+ (mid - start) / 1000000 + " ms, whole board " + whole + " in " + (end - mid) / 1000000 + " ms");
+
+		// take one tent away and put it back, checking after every change
+		Position tent = (Position)firstTent(big);
+		boolean agree = solved == 1;
+		long byRegion = 0, byBoard = 0;
+		for (int i = 0; i < 400; i++){
+			if (i % 2 == 0)
+				big.removeTent(tent);
+			else
+				big.addTent(tent);
+			start = System.nanoTime();
+			int s1 = split.checkStatus();
+			mid = System.nanoTime();
+			int s2 = big.checkStatus();
+			end = System.nanoTime();
+			if (i >= 200){
+				byRegion += mid - start;
+				byBoard += end - mid;
+			}
+			agree &= s1 == s2 && s1 == (i % 2 == 0 ? 2 : 1);
+		}
+		System.out.println("check after one change: by region " + byRegion / 200 / 1000 + " us, whole board "
+			+ byBoard / 200 / 1000 + " us");
+		if (agree){
+			System.out.println("Yay 5");
+		}
+	}
+
+	private static Object firstTent(TentTree game){
+		for (Object o : game.getOccupiedCells()){
+			if (game.hasTent((Position)o)){
+				return o;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,19 @@
+/**
+ * This class holds the one-byte codes of a cell, shared by every class that
+ * keeps a board as bytes: TentTree and its PaddedGrid, BoardBatch,
+ * ChangeStream, PuzzleGenerator, ParallelPuzzleLoader and OffHeapTentTree.
+ * EMPTY is 0, so a zero-filled array is an empty board.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+final class CellCode{
+
+	static final byte EMPTY = 0;
+	static final byte TENT = 1;
+	static final byte TREE = 2;
+	static final byte BORDER = 3;	// outside of the board, see PaddedGrid
+
+	private CellCode(){
+	}
+}
@@ -0,0 +1,409 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class streams the cell changes of a TentTree to listeners (a UI, metrics,
+ * replication, ...) so they never have to poll toString() or checkStatus().
+ *
+ * Every change is one compact record: row, col, old code and new code (EMPTY,
+ * TENT or TREE), kept in a ring buffer of primitive arrays. The board's writer
+ * only appends to the ring; deliver(), called by the consumer (typically on a
+ * thread of its own), takes up to maxBatch records off the ring and hands them
+ * to every listener as one Batch. With coalescing on, several changes of the
+ * same cell in one batch become a single record from its first old to its last
+ * new code, and a cell that ends up as it started is left out.
+ *
+ * When the consumer falls behind and the ring is full, the writer either waits
+ * for room (blockWhenFull) or drops the change; a batch after dropped changes
+ * reports overflowed(), and its listeners should re-read the board. A blocking
+ * stream needs deliver() to run on another thread than the writer.
+ *
+ * The board only holds on to a stream while it has listeners: with nobody
+ * subscribed to any stream a change costs one null check. Subscribe and unsubscribe on the
+ * board's writer thread (or before the board is shared). One writer and one
+ * consumer thread may use a stream at the same time.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class ChangeStream{
+
+	/**
+	 * Receiver of change batches
+	 */
+	interface Listener{
+		/**
+		 * Called by deliver() with the next changes, in order
+		 * @param batch changes, only valid during the call
+		 */
+		void onChanges(Batch batch);
+	}
+
+	/**
+	 * A batch of change records; it is reused by the next deliver()
+	 */
+	class Batch{
+		private int size = 0;
+		private final int[] rows, cols;
+		private final byte[] olds, news;
+		private boolean overflowed = false;
+
+		private Batch(int capacity){
+			rows = new int[capacity];
+			cols = new int[capacity];
+			olds = new byte[capacity];
+			news = new byte[capacity];
+		}
+
+		/**
+		 * Get number of records
+		 * @return size
+		 */
+		public int size(){ return size;}
+
+		/**
+		 * Get the row of a record
+		 * @param i record
+		 * @return row
+		 */
+		public int getRow(int i){ return rows[i];}
+
+		/**
+		 * Get the column of a record
+		 * @param i record
+		 * @return col
+		 */
+		public int getCol(int i){ return cols[i];}
+
+		/**
+		 * Get the position of a record
+		 * @param i record
+		 * @return position
+		 */
+		public Position getPosition(int i){ return new Position(rows[i], cols[i]);}
+
+		/**
+		 * Get the old code of a record
+		 * @param i record
+		 * @return EMPTY, TENT or TREE
+		 */
+		public byte getOldCode(int i){ return olds[i];}
+
+		/**
+		 * Get the new code of a record
+		 * @param i record
+		 * @return EMPTY, TENT or TREE
+		 */
+		public byte getNewCode(int i){ return news[i];}
+
+		/**
+		 * Get the old symbol of a record
+		 * @param i record
+		 * @return symbol, null for an empty cell
+		 */
+		public String getOld(int i){ return symbol(olds[i]);}
+
+		/**
+		 * Get the new symbol of a record
+		 * @param i record
+		 * @return symbol, null for an empty cell
+		 */
+		public String getNew(int i){ return symbol(news[i]);}
+
+		/**
+		 * Check whether changes were dropped before this batch
+		 * @return boolean
+		 */
+		public boolean overflowed(){ return overflowed;}
+
+		/**
+		 * To string method.
+		 * @return records as "<r,c> old->new", one per line
+		 */
+		public String toString(){
+			StringBuilder sb = new StringBuilder();
+			if (overflowed){
+				sb.append("(changes dropped)\n");
+			}
+			for (int i = 0; i < size; i++){
+				sb.append("<").append(rows[i]).append(",").append(cols[i]).append("> ")
+					.append(getOld(i) == null ? "-" : getOld(i)).append("->")
+					.append(getNew(i) == null ? "-" : getNew(i)).append("\n");
+			}
+			return sb.toString();
+		}
+	}
+
+	private final TentTree game;
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final boolean coalesce, blockWhenFull;
+
+	// ring of records; head is written by the writer only, tail by the consumer only
+	private final int mask;
+	private final int[] rows, cols;
+	private final byte[] olds, news;
+	private volatile long head = 0, tail = 0;
+	private volatile boolean dropped = false;	// set by the writer, cleared by deliver()
+	private long numDropped = 0, numRecorded = 0, numDelivered = 0;
+
+	// consumer side
+	private final Batch batch;
+	// cell (row * numCols + col) -> its record in batch
+	private final LongObjectMap<int[]> pending = new LongObjectMap<>(HashStrategy.MURMUR3);
+	private final int[][] slots;	// slots[i] = {i}, so coalescing never allocates
+
+	/**
+	 * Constructor; the stream is attached to the board by the first subscribe()
+	 * @param game board to watch
+	 * @param capacity records the ring holds, rounded up to a power of two
+	 * @param maxBatch most records per batch
+	 * @param coalesce merge changes of the same cell within a batch
+	 * @param blockWhenFull make the writer wait for room instead of dropping changes
+	 */
+	public ChangeStream(TentTree game, int capacity, int maxBatch, boolean coalesce, boolean blockWhenFull){
+		if (capacity < 1 || maxBatch < 1){
+			throw new RuntimeException("invalid stream size!");
+		}
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.game = game;
+		this.coalesce = coalesce;
+		this.blockWhenFull = blockWhenFull;
+		mask = size - 1;
+		rows = new int[size];
+		cols = new int[size];
+		olds = new byte[size];
+		news = new byte[size];
+		batch = new Batch(maxBatch);
+		slots = new int[coalesce ? maxBatch : 0][];
+		for (int i = 0; i < slots.length; i++){
+			slots[i] = new int[]{i};
+		}
+	}
+
+	/**
+	 * Add a listener; the first one attaches the stream to the board
+	 * @param listener listener
+	 */
+	public void subscribe(Listener listener){
+		listeners.add(listener);
+		game.addChangeStream(this);
+	}
+
+	/**
+	 * Remove a listener; without listeners the board stops recording
+	 * @param listener listener
+	 * @return false if it was not subscribed
+	 */
+	public boolean unsubscribe(Listener listener){
+		boolean removed = listeners.remove(listener);
+		if (listeners.isEmpty()){
+			game.removeChangeStream(this);
+		}
+		return removed;
+	}
+
+	/**
+	 * Record one change; called by the board
+	 * @param row row
+	 * @param col col
+	 * @param oldCode code before
+	 * @param newCode code after
+	 */
+	void record(int row, int col, byte oldCode, byte newCode){
+		long h = head;
+		while (h - tail > mask){
+			if (!blockWhenFull){
+				numDropped++;
+				dropped = true;
+				return;
+			}
+			Thread.yield();
+		}
+		int i = (int)h & mask;
+		rows[i] = row;
+		cols[i] = col;
+		olds[i] = oldCode;
+		news[i] = newCode;
+		numRecorded++;
+		head = h + 1;	// publishes the record
+	}
+
+	/**
+	 * Hand the next batch of changes to every listener
+	 * @return number of records taken off the ring, 0 if there were none
+	 */
+	public int deliver(){
+		long t = tail, h = head;
+		boolean lost = dropped;
+		int n = (int)Math.min(h - t, batch.rows.length);
+		if (n == 0 && !lost){
+			return 0;
+		}
+		if (lost){
+			dropped = false;
+		}
+		batch.size = 0;
+		batch.overflowed = lost;
+		for (long k = t; k < t + n; k++){
+			int i = (int)k & mask;
+			add(rows[i], cols[i], olds[i], news[i]);
+		}
+		tail = t + n;	// frees the ring slots for the writer
+		if (coalesce){
+			compact();
+		}
+		numDelivered += batch.size;
+		for (Listener listener : listeners){
+			listener.onChanges(batch);
+		}
+		return n;
+	}
+
+	// append a record to the batch, or merge it with the cell's earlier record
+	private void add(int row, int col, byte oldCode, byte newCode){
+		if (coalesce){
+			long cell = (long)row * game.numCols() + col;
+			int[] slot = pending.get(cell);
+			if (slot != null){
+				batch.news[slot[0]] = newCode;
+				return;
+			}
+			pending.add(cell, slots[batch.size]);
+		}
+		batch.rows[batch.size] = row;
+		batch.cols[batch.size] = col;
+		batch.olds[batch.size] = oldCode;
+		batch.news[batch.size] = newCode;
+		batch.size++;
+	}
+
+	// forget the cells of the batch and drop records that changed nothing
+	private void compact(){
+		int kept = 0;
+		for (int i = 0; i < batch.size; i++){
+			pending.remove((long)batch.rows[i] * game.numCols() + batch.cols[i]);
+			if (batch.olds[i] != batch.news[i]){
+				batch.rows[kept] = batch.rows[i];
+				batch.cols[kept] = batch.cols[i];
+				batch.olds[kept] = batch.olds[i];
+				batch.news[kept] = batch.news[i];
+				kept++;
+			}
+		}
+		batch.size = kept;
+	}
+
+	private String symbol(byte code){
+		return code == CellCode.TENT ? game.getTentSymbol() : code == CellCode.TREE ? game.getTreeSymbol() : null;
+	}
+
+	/**
+	 * Get the number of records waiting in the ring
+	 * @return backlog
+	 */
+	public int backlog(){ return (int)(head - tail);}
+
+	/**
+	 * Get the number of changes recorded
+	 * @return recorded
+	 */
+	public long getRecorded(){ return numRecorded;}
+
+	/**
+	 * Get the number of changes dropped because the ring was full
+	 * @return dropped
+	 */
+	public long getDropped(){ return numDropped;}
+
+	/**
+	 * Get the number of records delivered, after coalescing
+	 * @return delivered
+	 */
+	public long getDelivered(){ return numDelivered;}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+
+	public static void main(String[] args) throws InterruptedException{
+		TentTree game = new TentTree(4, 4);
+		final StringBuilder seen = new StringBuilder();
+		Listener log = new Listener(){
+			public void onChanges(Batch b){
+				seen.append(b);
+			}
+		};
+		ChangeStream plain = new ChangeStream(game, 16, 16, false, false);
+		plain.subscribe(log);
+		game.addTree(new Position(1, 1));
+		game.addTent(new Position(0, 1));
+		game.removeTent(new Position(0, 1));
+		game.addTent(new Position(0, 1));
+		if (plain.deliver() == 4 && seen.toString().equals("<1,1> -->O\n<0,1> -->X\n<0,1> X->-\n<0,1> -->X\n")){
+			System.out.println("Yay 1");
+		}
+
+		// nobody subscribed: nothing recorded
+		plain.unsubscribe(log);
+		game.removeTent(new Position(0, 1));
+		ChangeStream merged = new ChangeStream(game, 8, 16, true, false);
+		seen.setLength(0);
+		merged.subscribe(log);
+		game.addTent(new Position(1, 0));
+		game.removeTent(new Position(1, 0));
+		game.addTent(new Position(2, 1));
+		game.removeTent(new Position(2, 1));
+		game.addTent(new Position(2, 1));
+		if (plain.deliver() == 0 && merged.deliver() == 5 && seen.toString().equals("<2,1> -->X\n")){
+			System.out.println("Yay 2");
+		}
+
+		// full ring: changes are dropped and the next batch says so
+		seen.setLength(0);
+		for (int i = 0; i < 5; i++){
+			game.removeTent(new Position(2, 1));
+			game.addTent(new Position(2, 1));
+		}
+		if (merged.getDropped() == 2 && merged.deliver() == 8 && seen.toString().startsWith("(changes dropped)")){
+			System.out.println("Yay 3");
+		}
+		merged.unsubscribe(log);
+
+		// a consumer thread keeps a replica in step with a blocking stream
+		final TentTree source = new TentTree(64, 64);
+		final TentTree replica = new TentTree(64, 64);
+		final ChangeStream stream = new ChangeStream(source, 64, 32, true, true);
+		stream.subscribe(new Listener(){
+			public void onChanges(Batch b){
+				for (int i = 0; i < b.size(); i++){
+					if (b.getNewCode(i) == CellCode.EMPTY)
+						replica.removeTent(b.getPosition(i));
+					else
+						replica.set(b.getPosition(i), b.getNew(i));
+				}
+			}
+		});
+		final java.util.concurrent.atomic.AtomicBoolean stop = new java.util.concurrent.atomic.AtomicBoolean(false);
+		Thread consumer = new Thread(){
+			public void run(){
+				while (stream.deliver() > 0 || !stop.get()){
+					Thread.yield();
+				}
+			}
+		};
+		consumer.start();
+		for (int r = 0; r < 64; r += 2){
+			for (int c = 0; c < 64; c++){
+				source.addTree(new Position(r, c));
+				source.addTent(new Position(r + 1, c));
+				if (c % 3 == 0){
+					source.removeTent(new Position(r + 1, c));
+				}
+			}
+		}
+		stop.set(true);
+		consumer.join();
+		if (replica.toString().equals(source.toString()) && stream.getDropped() == 0){
+			System.out.println("Yay 4");
+		}
+		System.out.println(stream.getRecorded() + " changes recorded, " + stream.getDelivered() + " delivered after coalescing");
+	}
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// this is a contention benchmark of SharedTentTree: 1 writer keeps adding
+// and removing tents on a live board while N readers render it, check it,
+// look up cells and read its hash and tent counts. Every configuration runs
+// twice, with lock-free reads of published versions and with every read
+// taking the read lock on the live board, and the throughput of both sides
+// is reported, with the share of reads that had to build a version's board
+// TO RUN: java ContentionBenchmark [MILLIS [READERS...]]
+// For example, java ContentionBenchmark 2000 1 2 4 8
+
+class ContentionBenchmark{
+
+	private static final int SIDE = 24;
+
+	// board with a tree at every third cell of every other row, and the
+	// cells where the writer may put tents
+	private static TentTree board(List<Position> spots){
+		TentTree game = new TentTree(SIDE, SIDE);
+		for (int r = 0; r < SIDE; r += 2){
+			for (int c = 0; c < SIDE; c += 3){
+				game.addTree(new Position(r, c));
+				if (r + 1 < SIDE){
+					spots.add(new Position(r + 1, c));
+				}
+			}
+		}
+		return game;
+	}
+
+	// run 1 writer and numReaders readers for millis ms;
+	// returns {reads, writes}
+	private static long[] run(final SharedTentTree shared, final List<Position> spots, int numReaders, long millis)
+		throws InterruptedException{
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		final long[] counts = new long[numReaders + 1];
+		Thread[] threads = new Thread[numReaders + 1];
+		threads[0] = new Thread(){
+			public void run(){
+				long n = 0;
+				for (int i = 0; !stop.get(); i++){
+					Position pos = spots.get(i % spots.size());
+					if (!shared.addTent(pos)){
+						shared.removeTent(pos);
+					}
+					n++;
+				}
+				counts[0] = n;
+			}
+		};
+		for (int k = 1; k <= numReaders; k++){
+			final int id = k;
+			threads[k] = new Thread(){
+				public void run(){
+					long n = 0;
+					int sink = 0;
+					for (int i = 0; !stop.get(); i++){
+						// renderer, validator, point lookups and counters
+						switch (i % 4){
+							case 0: sink += shared.render().length(); break;
+							case 1: sink += shared.checkStatus()[0].length(); break;
+							case 2: sink += shared.get(spots.get(i % spots.size())) == null ? 0 : 1; break;
+							default: sink += (int)shared.zobristHash() + shared.rowTentCount(i % SIDE);
+						}
+						n++;
+					}
+					counts[id] = n + (sink == 42 ? 1 : 0);
+				}
+			};
+		}
+		for (Thread t : threads){
+			t.start();
+		}
+		Thread.sleep(millis);
+		stop.set(true);
+		for (Thread t : threads){
+			t.join();
+		}
+		long reads = 0;
+		for (int k = 1; k <= numReaders; k++){
+			reads += counts[k];
+		}
+		return new long[]{reads, counts[0]};
+	}
+
+	public static void main(String[] args) throws InterruptedException{
+		long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+		int[] readers = {1, 2, 4, 8};
+		if (args.length > 1){
+			readers = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++){
+				readers[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " cores, " + SIDE + " x " + SIDE + " board, "
+			+ millis + " ms per run");
+		System.out.println(String.format("%-8s %-10s %12s %12s %9s %9s", "readers", "reads", "reads/s", "writes/s",
+			"built", "locked"));
+
+		// warm up both paths
+		List<Position> spots = new ArrayList<>();
+		run(new SharedTentTree(board(spots), true), spots, 2, millis / 2);
+		run(new SharedTentTree(board(spots), false), spots, 2, millis / 2);
+
+		for (int n : readers){
+			for (int mode = 0; mode < 2; mode++){
+				spots = new ArrayList<>();
+				SharedTentTree shared = new SharedTentTree(board(spots), mode == 0);
+				long[] counts = run(shared, spots, n, millis);
+				double reads = Math.max(1, shared.getReads());
+				System.out.println(String.format("%-8d %-10s %12.0f %12.0f %8.2f%% %8.2f%%", n, mode == 0 ? "versions" : "read lock",
+					counts[0] * 1000.0 / millis, counts[1] * 1000.0 / millis,
+					100 * shared.getViewsBuilt() / reads, 100 * shared.getLockedReads() / reads));
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * This class is a small counting Bloom filter over hash codes. It answers
+ * "definitely not present" or "maybe present" for a hash code, and unlike a plain
+ * Bloom filter it supports removal: every slot is an 8-bit counter instead of a
+ * single bit. A counter that reaches 255 sticks there, so it never drops back to
+ * zero under an item that is still present.
+ *
+ * HashTable keeps one of these in front of its chains so that lookups of absent
+ * values can return without touching a bucket.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class CountingBloomFilter{
+
+	private static final int NUM_HASHES = 3;
+	private static final int MAX_COUNT = 255;
+
+	private byte[] counters;	// length is a power of two
+	private int mask;
+
+	/**
+	 * Constructor
+	 * @param expectedItems number of items the filter is sized for
+	 */
+	public CountingBloomFilter(int expectedItems){
+		// about 8 counters per item keeps false positives around 3% with 3 hashes
+		int length = Integer.highestOneBit(Math.max(64, expectedItems) * 8 - 1) << 1;
+		this.counters = new byte[length];
+		this.mask = length - 1;
+	}
+
+	/**
+	 * Add a hash code to the filter
+	 * @param hash hash code
+	 */
+	public void add(int hash){
+		// same mixer as the tables, so nearby hash codes land on unrelated counters
+		int h1 = HashStrategy.MURMUR3.hash(hash);
+		int h2 = (h1 >>> 16) | 1;
+		for (int i = 0; i < NUM_HASHES; i++){
+			int at = (h1 + i * h2) & mask;
+			int count = counters[at] & 0xFF;
+			if (count < MAX_COUNT){
+				counters[at] = (byte)(count + 1);
+			}
+		}
+	}
+
+	/**
+	 * Remove a hash code that was added before
+	 * @param hash hash code
+	 */
+	public void remove(int hash){
+		int h1 = HashStrategy.MURMUR3.hash(hash);
+		int h2 = (h1 >>> 16) | 1;
+		for (int i = 0; i < NUM_HASHES; i++){
+			int at = (h1 + i * h2) & mask;
+			int count = counters[at] & 0xFF;
+			// saturated counters have lost track of how many items they hold
+			if (count > 0 && count < MAX_COUNT){
+				counters[at] = (byte)(count - 1);
+			}
+		}
+	}
+
+	/**
+	 * Check whether a hash code may have been added
+	 * @param hash hash code
+	 * @return false if the hash code was definitely never added
+	 */
+	public boolean mightContain(int hash){
+		int h1 = HashStrategy.MURMUR3.hash(hash);
+		int h2 = (h1 >>> 16) | 1;
+		for (int i = 0; i < NUM_HASHES; i++){
+			if (counters[(h1 + i * h2) & mask] == 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of counters
+	 * @return number of counters
+	 */
+	public int capacity(){
+		return counters.length;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+
+	public static void main(String[] args){
+		CountingBloomFilter f = new CountingBloomFilter(100);
+		for (int i = 0; i < 100; i++){
+			f.add(i);
+		}
+		boolean allThere = true;
+		for (int i = 0; i < 100; i++){
+			allThere &= f.mightContain(i);
+		}
+		if (allThere){
+			System.out.println("Yay 1");
+		}
+
+		int falsePositives = 0;
+		for (int i = 1000; i < 11000; i++){
+			if (f.mightContain(i)){
+				falsePositives++;
+			}
+		}
+		System.out.println("false positive rate: " + falsePositives / 10000.0);
+		if (falsePositives < 1000){
+			System.out.println("Yay 2");
+		}
+
+		for (int i = 0; i < 100; i++){
+			f.remove(i);
+		}
+		boolean allGone = true;
+		for (int i = 0; i < 100; i++){
+			allGone &= !f.mightContain(i);
+		}
+		if (allGone){
+			System.out.println("Yay 3");
+		}
+	}
+}
@@ -0,0 +1,129 @@
+import java.util.*;
+
+// this is a tail latency benchmark of lookups in three hash sets:
+// HashTable (separate chaining), a linear-probing open addressing set,
+// and CuckooHashTable. Every lookup is timed on its own and the
+// percentiles of hits and misses are reported
+// TO RUN: java CuckooBenchmark [NUM_KEYS [ROUNDS]]
+// For example, java CuckooBenchmark 200000 5
+
+class CuckooBenchmark{
+
+	// minimal open addressing set with linear probing, for comparison only
+	private static class LinearProbingSet{
+		private Object[] slots = new Object[16];
+		private int itemCount = 0;
+
+		boolean add(Object value){
+			if (contains(value)){
+				return false;
+			}
+			if (itemCount + 1 > slots.length / 2){
+				Object[] old = slots;
+				slots = new Object[old.length * 2];
+				for (Object o : old){
+					if (o != null){
+						slots[probe(o)] = o;
+					}
+				}
+			}
+			slots[probe(value)] = value;
+			itemCount++;
+			return true;
+		}
+
+		boolean contains(Object value){
+			return slots[probe(value)] != null;
+		}
+
+		// slot holding value, or the empty slot where it would go
+		private int probe(Object value){
+			int mask = slots.length - 1;
+			int i = HashStrategy.MURMUR3.hash(value.hashCode()) & mask;
+			while (slots[i] != null && !slots[i].equals(value)){
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+	}
+
+	private static final String[] NAMES = {"chaining", "open addressing", "cuckoo"};
+
+	// time every lookup in probes against table kind, into times
+	@SuppressWarnings("unchecked")
+	private static int timeLookups(Object table, int kind, Integer[] probes, long[] times){
+		int found = 0;
+		for (int i = 0; i < probes.length; i++){
+			long start = System.nanoTime();
+			boolean hit;
+			if (kind == 0){
+				hit = ((HashTable<Integer>)table).contains(probes[i]);
+			}
+			else if (kind == 1){
+				hit = ((LinearProbingSet)table).contains(probes[i]);
+			}
+			else {
+				hit = ((CuckooHashTable<Integer>)table).contains(probes[i]);
+			}
+			times[i] = System.nanoTime() - start;
+			if (hit){
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private static long percentile(long[] sorted, double p){
+		int at = (int)Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, at))];
+	}
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		// keys with a clustered pattern: clustering is what hurts the tail
+		Random rand = new Random(310);
+		Integer[] keys = new Integer[n];
+		Integer[] absent = new Integer[n];
+		for (int i = 0; i < n; i++){
+			keys[i] = (i / 64) * 4096 + (i % 64);
+			absent[i] = keys[i] + 64;
+		}
+		Collections.shuffle(Arrays.asList(keys), rand);
+		Collections.shuffle(Arrays.asList(absent), rand);
+
+		HashTable<Integer> chaining = new HashTable<>();
+		LinearProbingSet open = new LinearProbingSet();
+		CuckooHashTable<Integer> cuckoo = new CuckooHashTable<>();
+		for (Integer k : keys){
+			chaining.add(k);
+			open.add(k);
+			cuckoo.add(k);
+		}
+		Object[] tables = {chaining, open, cuckoo};
+		System.out.println(n + " keys, cuckoo load " + String.format("%.2f", cuckoo.getLoad())
+			+ ", stash " + cuckoo.getStashSize() + ", longest chain " + (chaining.chainLengthCounts().length - 1));
+
+		long[] times = new long[n];
+		for (int r = 0; r < rounds; r++){
+			boolean last = r == rounds - 1;	// earlier rounds warm up the JIT
+			if (last){
+				System.out.println(String.format("%-16s %-6s %8s %8s %8s %8s  (ns)", "table", "lookup", "p50", "p99", "p99.9", "max"));
+			}
+			for (int kind = 0; kind < tables.length; kind++){
+				for (int miss = 0; miss < 2; miss++){
+					int found = timeLookups(tables[kind], kind, miss == 0 ? keys : absent, times);
+					if (found != (miss == 0 ? n : 0)){
+						throw new RuntimeException(NAMES[kind] + " returned wrong results!");
+					}
+					if (last){
+						Arrays.sort(times);
+						System.out.println(String.format("%-16s %-6s %8d %8d %8d %8d", NAMES[kind], miss == 0 ? "hit" : "miss",
+							percentile(times, 0.5), percentile(times, 0.99), percentile(times, 0.999), times[n - 1]));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/**
+ * This class is a generic hash set using bucketized cuckoo hashing, with the same
+ * operations as HashTable. Every value has exactly two candidate buckets of 4 slots
+ * each, picked by two independent hash functions, so a lookup reads at most two
+ * buckets (plus a tiny stash that is empty almost all of the time) no matter how
+ * unlucky the keys are. Chained buckets, in contrast, can grow without bound.
+ *
+ * Inserting into two full buckets kicks a resident value out to its other bucket,
+ * which may kick another one, and so on. If that does not settle within MAX_KICKS
+ * moves, the homeless value goes to the stash; when the stash is full too, the
+ * table grows and everything is placed again.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class CuckooHashTable<T>{
+
+	private static final int SLOTS = 4;	// slots per bucket
+	private static final int STASH_SIZE = 8;
+	private static final int MAX_KICKS = 500;
+	private static final double MAX_LOAD = 0.9;	// grow above this load
+
+	private Object[] slots;	// bucket b is slots[b*SLOTS .. b*SLOTS+SLOTS-1]
+	private int bucketMask;	// number of buckets - 1, a power of two
+	private Object[] stash = new Object[STASH_SIZE];
+	private int stashCount = 0;
+	private int itemCount = 0;
+	private int kickSeed = 0x2545F491;	// xorshift state to pick which resident to kick
+
+	/**
+	 * Constructor, 16 buckets of 4 slots
+	 */
+	public CuckooHashTable(){
+		this(64);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity initial number of slots, rounded up to 4 * a power of two
+	 */
+	public CuckooHashTable(int capacity){
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity){
+		int buckets = Integer.highestOneBit(Math.max(2, (capacity + SLOTS - 1) / SLOTS) - 1) << 1;
+		slots = new Object[buckets * SLOTS];
+		bucketMask = buckets - 1;
+	}
+
+	// first candidate bucket
+	private int bucket1(int h){
+		return HashStrategy.MURMUR3.hash(h) & bucketMask;
+	}
+
+	// second candidate bucket, from an independent mix of the same hash code
+	private int bucket2(int h){
+		h *= 0x9E3779B9;
+		h ^= h >>> 15;
+		h *= 0x2C1B3C6D;
+		h ^= h >>> 12;
+		return h & bucketMask;
+	}
+
+	// index of value in slots, or -1
+	private int find(Object value, int h){
+		int start = bucket1(h) * SLOTS;
+		for (int i = start; i < start + SLOTS; i++){
+			if (slots[i] != null && slots[i].equals(value)){
+				return i;
+			}
+		}
+		start = bucket2(h) * SLOTS;
+		for (int i = start; i < start + SLOTS; i++){
+			if (slots[i] != null && slots[i].equals(value)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// index of value in the stash, or -1
+	private int findInStash(Object value){
+		for (int i = 0; i < stashCount; i++){
+			if (stash[i].equals(value)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add method
+	 * @param value T
+	 * @return boolean, false if the value already exists in the set
+	 */
+	public boolean add(T value){
+		// O(1) expected, amortized over growth
+		if (contains(value)){
+			return false;
+		}
+		if ((double)(itemCount + 1) / slots.length > MAX_LOAD){
+			rehash(slots.length * 2);
+		}
+		Object homeless = place(value);
+		while (homeless != null){
+			if (stashCount < STASH_SIZE){
+				stash[stashCount++] = homeless;
+				break;
+			}
+			// grow and retry: the homeless value is the only one not in the table
+			rehash(slots.length * 2);
+			homeless = place(homeless);
+		}
+		itemCount++;
+		return true;
+	}
+
+	// put value into one of its buckets, kicking residents around if needed;
+	// returns null on success or the value that is left without a slot
+	private Object place(Object value){
+		Object current = value;
+		int h = current.hashCode();
+		int b = bucket1(h);
+		for (int kick = 0; kick <= MAX_KICKS; kick++){
+			if (putInBucket(current, b) || putInBucket(current, b == bucket1(h) ? bucket2(h) : bucket1(h))){
+				return null;
+			}
+			// both buckets full: evict a random resident of b and move it on
+			kickSeed ^= kickSeed << 13;
+			kickSeed ^= kickSeed >>> 17;
+			kickSeed ^= kickSeed << 5;
+			int victimAt = b * SLOTS + (kickSeed & (SLOTS - 1));
+			Object victim = slots[victimAt];
+			slots[victimAt] = current;
+			current = victim;
+			h = current.hashCode();
+			int b1 = bucket1(h);
+			b = (b1 == b) ? bucket2(h) : b1;	// the victim's other bucket
+		}
+		return current;
+	}
+
+	private boolean putInBucket(Object value, int b){
+		int start = b * SLOTS;
+		for (int i = start; i < start + SLOTS; i++){
+			if (slots[i] == null){
+				slots[i] = value;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove method
+	 * @param value T
+	 * @return boolean, false if the item could not be found
+	 */
+	public boolean remove(T value){
+		// O(1) worst case
+		int at = find(value, value.hashCode());
+		if (at >= 0){
+			slots[at] = null;
+			itemCount--;
+			// a stashed value may fit now that a slot is free
+			if (stashCount > 0){
+				retryStash();
+			}
+			return true;
+		}
+		at = findInStash(value);
+		if (at < 0){
+			return false;
+		}
+		stash[at] = stash[--stashCount];
+		stash[stashCount] = null;
+		itemCount--;
+		return true;
+	}
+
+	private void retryStash(){
+		for (int i = stashCount - 1; i >= 0; i--){
+			int h = stash[i].hashCode();
+			if (putInBucket(stash[i], bucket1(h)) || putInBucket(stash[i], bucket2(h))){
+				stash[i] = stash[--stashCount];
+				stash[stashCount] = null;
+			}
+		}
+	}
+
+	/**
+	 * Contain method
+	 * @param value T
+	 * @return boolean
+	 */
+	public boolean contains(T value){
+		// O(1) worst case: two buckets and the stash
+		return find(value, value.hashCode()) >= 0 || (stashCount > 0 && findInStash(value) >= 0);
+	}
+
+	/**
+	 * Get method
+	 * @param value T
+	 * @return the item FROM THE TABLE that equals value, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(T value){
+		// O(1) worst case
+		int at = find(value, value.hashCode());
+		if (at >= 0){
+			return (T)slots[at];
+		}
+		if (stashCount > 0){
+			at = findInStash(value);
+			if (at >= 0){
+				return (T)stash[at];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Rehash method
+	 * @param newCapacity number of slots, rounded up to 4 * a power of two
+	 * @return boolean, false if the values would not fit under the maximum load
+	 */
+	public boolean rehash(int newCapacity){
+		// O(M) expected where M = size returned by size()
+		if (newCapacity < 2 || (double)itemCount / newCapacity > MAX_LOAD){
+			return false;
+		}
+		Object[] arr = valuesToArray();
+		while (true){
+			allocate(newCapacity);
+			stash = new Object[STASH_SIZE];
+			stashCount = 0;
+			boolean placed = true;
+			for (int i = 0; i < arr.length && placed; i++){
+				Object homeless = place(arr[i]);
+				if (homeless != null){
+					if (stashCount < STASH_SIZE){
+						stash[stashCount++] = homeless;
+					}
+					else {
+						placed = false;
+					}
+				}
+			}
+			if (placed){
+				return true;
+			}
+			// very unlucky: start over with twice the room
+			newCapacity = slots.length * 2;
+		}
+	}
+
+	/**
+	 * Get size method
+	 * @return size
+	 */
+	public int size(){
+		// O(1)
+		return itemCount;
+	}
+
+	/**
+	 * Get number of slots
+	 * @return capacity
+	 */
+	public int capacity(){
+		// O(1)
+		return slots.length;
+	}
+
+	/**
+	 * Get load method.
+	 * @return load
+	 */
+	public double getLoad(){
+		// O(1)
+		return (double)itemCount / slots.length;
+	}
+
+	/**
+	 * Get number of values in the stash
+	 * @return stash size
+	 */
+	public int getStashSize(){
+		// O(1)
+		return stashCount;
+	}
+
+	/**
+	 * valuesToArray
+	 * @return all values, in no particular order
+	 */
+	public Object[] valuesToArray(){
+		// O(N) where N is the capacity
+		Object[] array = new Object[itemCount];
+		int num = 0;
+		for (Object o : slots){
+			if (o != null){
+				array[num++] = o;
+			}
+		}
+		for (int i = 0; i < stashCount; i++){
+			array[num++] = stash[i];
+		}
+		return array;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	public static void main(String[] args){
+		CuckooHashTable<String> names = new CuckooHashTable<>();
+
+		if(names.add("Alice") && names.add("Bob") && !names.add("Alice") && names.size() == 2) {
+			System.out.println("Yay 1");
+		}
+
+		if(names.remove("Bob") && names.contains("Alice") && !names.contains("Bob") && names.valuesToArray()[0].equals("Alice")
+			&& names.get("Alice").equals("Alice") && names.get("Bob") == null && !names.remove("Bob")) {
+			System.out.println("Yay 2");
+		}
+
+		CuckooHashTable<Integer> nums = new CuckooHashTable<>(8);
+		boolean ok = true;
+		for(int i = -50000; i < 50000; i++) {
+			ok &= nums.add(i * 64);
+		}
+		for(int i = -50000; i < 50000 && ok; i++) {
+			ok = nums.contains(i * 64) && !nums.contains(i * 64 + 1);
+		}
+		for(int i = -50000; i < 50000 && ok; i += 2) {
+			ok = nums.remove(i * 64);
+		}
+		if(ok && nums.size() == 50000 && nums.getLoad() <= 0.9 && nums.valuesToArray().length == 50000
+			&& !nums.rehash(1000) && nums.rehash(200000) && nums.contains(-49999 * 64)) {
+			System.out.println("Yay 3");
+		}
+	}
+}
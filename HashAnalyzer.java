@@ -0,0 +1,126 @@
+import java.util.*;
+
+// this is a tool to compare hashing strategies of HashTable
+// every key set is put through every strategy into a table of a fixed
+// capacity (the next prime above twice the number of keys, the size
+// HashTable would grow to), and the chain length distribution is reported
+// TO RUN: java HashAnalyzer [NUM_KEYS]
+// For example, java HashAnalyzer 100000
+
+class HashAnalyzer{
+
+	/**
+	 * Chain statistics of one key set under one strategy
+	 */
+	static class Report{
+		int numKeys, capacity, usedBuckets, longest;
+		int[] counts;	// counts[k] = buckets with k keys, the last one is k or more
+
+		/**
+		 * Get average length of the non-empty chains
+		 * @return average chain length
+		 */
+		double avgChainLength(){
+			return usedBuckets == 0 ? 0 : (double)numKeys / usedBuckets;
+		}
+
+		/**
+		 * Get the fraction of keys that share their bucket with an earlier key
+		 * @return collision rate
+		 */
+		double collisionRate(){
+			return numKeys == 0 ? 0 : (double)(numKeys - usedBuckets) / numKeys;
+		}
+	}
+
+	/**
+	 * Put the hash codes of keys through strategy into capacity buckets
+	 * @param keys keys to hash
+	 * @param strategy hashing strategy
+	 * @param capacity number of buckets
+	 * @param maxLength chain lengths of maxLength or more are counted together
+	 * @return report
+	 */
+	static Report analyze(List<?> keys, HashStrategy strategy, int capacity, int maxLength){
+		int[] chain = new int[capacity];
+		for (Object key : keys){
+			chain[HashTable.bucketIndex(strategy, key.hashCode(), capacity)]++;
+		}
+		Report r = new Report();
+		r.numKeys = keys.size();
+		r.capacity = capacity;
+		r.counts = new int[maxLength + 1];
+		for (int len : chain){
+			if (len > 0){
+				r.usedBuckets++;
+			}
+			r.longest = Math.max(r.longest, len);
+			r.counts[Math.min(len, maxLength)]++;
+		}
+		return r;
+	}
+
+	public static void main(String[] args){
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		Map<String, List<Object>> keySets = new LinkedHashMap<>();
+		List<Object> positions = new ArrayList<>();
+		int side = (int)Math.ceil(Math.sqrt(n));
+		for (int i = 0; i < n; i++){
+			positions.add(new Position(i / side, i % side));
+		}
+		keySets.put("positions of a square board", positions);
+		List<Object> column = new ArrayList<>();
+		for (int i = 0; i < n; i++){
+			column.add(new Position(i, 7));
+		}
+		keySets.put("positions in one column", column);
+		List<Object> strided = new ArrayList<>();
+		for (int i = 0; i < n; i++){
+			strided.add(i * 1024);
+		}
+		keySets.put("multiples of 1024", strided);
+		List<Object> negative = new ArrayList<>();
+		for (int i = 0; i < n; i++){
+			negative.add(-i * 7919);
+		}
+		keySets.put("negative integers", negative);
+		List<Object> words = new ArrayList<>();
+		for (int i = 0; i < n; i++){
+			words.add("cell" + i);
+		}
+		keySets.put("strings", words);
+
+		HashStrategy lowByte = new HashStrategy(){
+			public int hash(int h){
+				return h & 0xFF;
+			}
+
+			public String toString(){
+				return "custom (low byte only)";
+			}
+		};
+		HashStrategy[] strategies = {HashStrategy.IDENTITY, HashStrategy.MURMUR3, lowByte};
+
+		int capacity = new HashTable<Integer>().nextPrime(2 * n);
+		int maxLength = 8;
+		System.out.println(n + " keys per set, " + capacity + " buckets");
+		for (Map.Entry<String, List<Object>> set : keySets.entrySet()){
+			System.out.println("\n" + set.getKey());
+			StringBuilder header = new StringBuilder(String.format("  %-24s %8s %8s %10s", "strategy", "avg", "longest", "collision"));
+			for (int k = 1; k <= maxLength; k++){
+				header.append(String.format(" %7s", k < maxLength ? "len=" + k : ">=" + k));
+			}
+			System.out.println(header);
+			for (HashStrategy strategy : strategies){
+				Report r = analyze(set.getValue(), strategy, capacity, maxLength);
+				StringBuilder line = new StringBuilder(String.format("  %-24s %8.3f %8d %9.1f%%",
+					strategy, r.avgChainLength(), r.longest, 100 * r.collisionRate()));
+				for (int k = 1; k <= maxLength; k++){
+					line.append(String.format(" %7d", r.counts[k]));
+				}
+				System.out.println(line);
+			}
+		}
+	}
+}
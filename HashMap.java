@@ -10,7 +10,22 @@ class HashMap<K,V> {
 	
 	// keys in a dictionary must be unique.
 	
-	private HashTable<Pair<K,V>> hashTable = new HashTable<>();
+	private HashTable<Pair<K,V>> hashTable;
+
+	public HashMap() {
+		hashTable = new HashTable<>();
+	}
+
+	public HashMap(boolean useFilter) {
+		// useFilter: keep a negative-lookup filter in the hash table,
+		// worth it when most lookups are for absent keys
+		hashTable = new HashTable<>(useFilter);
+	}
+
+	public HashMap(HashStrategy strategy, boolean useFilter) {
+		// strategy: hashing strategy applied to key.hashCode() before bucket selection
+		hashTable = new HashTable<>(strategy, useFilter);
+	}
 	
 	
 	// The class representing <key,value> pair
@@ -67,11 +82,13 @@ class HashMap<K,V> {
 		// update the mapping of key in the dictionary to be a new value
 		// if key not present in dictionary, return false
 		// if fail to update, return false
-		Pair<K,V> pair = new Pair<>(key, value);
-		if(!remove(key)) {
+		// the value is not part of the pair's hash, so it is changed in place
+		Pair<K,V> found = hashTable.get(new Pair<>(key, null));
+		if(found == null) {
 			return false;
 		}
-		return hashTable.add(pair);
+		found.value = value;
+		return true;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -86,10 +103,9 @@ class HashMap<K,V> {
 	public V get(K key) {
 		// return the value that the key maps to in dictionary
 		// if key not present, return null
-		if (!contains(key))
-			return null;
-		Pair<K,V> pair = new Pair<>(key, null);
-		return hashTable.get(pair).getValue();
+		// one probe and one temporary pair
+		Pair<K,V> found = hashTable.get(new Pair<>(key, null));
+		return found == null ? null : found.getValue();
 	}
 	
 	public int size() {
@@ -97,6 +113,11 @@ class HashMap<K,V> {
 		return hashTable.size();
 	}
 
+	public double getFilterFalsePositiveRate() {
+		// false positive rate of the hash table's negative-lookup filter
+		return hashTable.getFilterFalsePositiveRate();
+	}
+
 	public boolean contains(K key){
 		// return true if key is present
 		// return false otherwise
@@ -106,20 +127,14 @@ class HashMap<K,V> {
 	public boolean has(K key, V value){
 		// return true if <key, value> pair is present in dictionary
 		// return false otherwise	
-		Pair<K, V> pair = new Pair<>(key, null);
-		return this.contains(key) && (hashTable.get(pair)).getValue().equals(value);
-		
+		Pair<K, V> found = hashTable.get(new Pair<>(key, null));
+		return found != null && found.getValue().equals(value);
 	}
 		
 	public V getValue(K key){
 		// return the value this key mapped to from the dictionary
 		// if key not present, return null
-		if (this.contains(key)){
-			Pair<K, V> pair = new Pair<>(key, null);
-			return hashTable.get(pair).getValue();
-		}
-		else
-			return null;
+		return get(key);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -138,6 +153,21 @@ class HashMap<K,V> {
 		
 		return arr;
 	}
+
+	@SuppressWarnings("unchecked")
+	public Object[] keysToArray() {
+		// return an object array of all keys in the dictionary
+		// O(M) where M = size returned by size()
+
+		Object[] hashTableValues = hashTable.valuesToArray();
+		Object[] arr = new Object[hashTableValues.length];
+
+		for(int i = 0; i < arr.length; i++) {
+			arr[i] = ((Pair<K,V>)hashTableValues[i]).getKey();
+		}
+
+		return arr;
+	}
 	
 	//-----------------------------------------------
 	// example testing code... edit this as much as you want!
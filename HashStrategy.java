@@ -0,0 +1,51 @@
+/**
+ * This interface is a hashing strategy of HashTable: a function applied to
+ * value.hashCode() before the table picks a bucket. A good strategy spreads
+ * keys with a poor hashCode (all in the high bits, all multiples of some number,
+ * ...) across the whole table. Any int -> int function can be plugged in, e.g.
+ * new HashTable<>(h -> h * 31).
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+interface HashStrategy{
+
+	/**
+	 * Use the hash code as it is.
+	 */
+	HashStrategy IDENTITY = new HashStrategy(){
+		public int hash(int h){
+			return h;
+		}
+
+		public String toString(){
+			return "identity";
+		}
+	};
+
+	/**
+	 * The 32-bit finalizer (fmix32) of MurmurHash3: every input bit
+	 * affects every output bit.
+	 */
+	HashStrategy MURMUR3 = new HashStrategy(){
+		public int hash(int h){
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			h *= 0xc2b2ae35;
+			h ^= h >>> 16;
+			return h;
+		}
+
+		public String toString(){
+			return "murmur3";
+		}
+	};
+
+	/**
+	 * Mix a hash code
+	 * @param h hash code
+	 * @return mixed hash code, may be negative
+	 */
+	int hash(int h);
+}
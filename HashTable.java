@@ -1,4 +1,5 @@
-import java.util.Iterator;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * This class is a generic hash table using separate chaining to resolve collision.
@@ -20,11 +21,80 @@ class HashTable<T> {
 	
 	// you decide which additional attributes to include in this class but they should all be private
 	
-	@SuppressWarnings("unchecked")
-	private SimpleList<T>[] table = new SimpleList[11];
+	// tables with at least this many values rehash on all cores; time both
+	// paths on the target machine with "java HashTable SIZE..." before lowering it
+	static final int PARALLEL_REHASH_MIN = 1 << 21;
+
+	private SimpleList<T>[] table = newTable(11);
 	private int itemCount = 0;
 	private int numOfChains = 0;
 
+	// applied to hashCode() before the bucket is picked
+	private HashStrategy strategy = HashStrategy.IDENTITY;
+
+	// optional filter that answers most lookups of absent values without a bucket scan
+	private CountingBloomFilter filter = null;
+	private long filterRejects = 0;	// misses answered by the filter alone
+	private long filterFalsePositives = 0;	// filter said maybe, the chain said no
+
+	/**
+	 * Constructor of a table without a negative-lookup filter.
+	 */
+	public HashTable(){
+	}
+
+	/**
+	 * Constructor
+	 * @param useFilter keep a counting Bloom filter in front of the chains
+	 */
+	public HashTable(boolean useFilter){
+		this(HashStrategy.IDENTITY, useFilter);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public HashTable(HashStrategy strategy){
+		this(strategy, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 * @param useFilter keep a counting Bloom filter in front of the chains
+	 */
+	public HashTable(HashStrategy strategy, boolean useFilter){
+		this.strategy = strategy;
+		if (useFilter){
+			filter = new CountingBloomFilter(table.length);
+		}
+	}
+
+	// bucket of a value; the sign bit is dropped so that a negative
+	// hash code can never give a negative index
+	private int bucketOf(T value){
+		return bucketOf(value, table.length);
+	}
+
+	// bucket of a value in a table of the given length
+	private int bucketOf(T value, int length){
+		return bucketIndex(strategy, value.hashCode(), length);
+	}
+
+	// bucket of a hash code under a strategy in a table of the given length;
+	// the one place the bucketing rule lives (PrimitiveHashTable and
+	// HashAnalyzer use it too)
+	static int bucketIndex(HashStrategy strategy, int hashCode, int length){
+		return (strategy.hash(hashCode) & 0x7fffffff) % length;
+	}
+
+	// the one unchecked step: arrays of a generic type cannot be created directly
+	@SuppressWarnings("unchecked")
+	private static <T> SimpleList<T>[] newTable(int length){
+		return (SimpleList<T>[])new SimpleList<?>[length];
+	}
+
 	private void setItemCount(int num){
 		this.itemCount = num;
 	}
@@ -46,15 +116,7 @@ class HashTable<T> {
 			return false;
 		}
 
-		int position = value.hashCode() % table.length;
-
-		if (table[position] == null ){
-			table[position] = new SimpleList<T>();
-			numOfChains++;
-		}
-		itemCount++;
-
-		table[position].add(value);
+		insert(value);
 
 		// note: if the average chain length is > 1.2
 		// must rehash to the next prime number larger
@@ -69,6 +131,38 @@ class HashTable<T> {
 		return true;
 	}
 
+	// put a value known to be absent into its chain, no growth check
+	private void insert(T value){
+		int position = bucketOf(value);
+
+		if (table[position] == null ){
+			table[position] = new SimpleList<T>();
+			numOfChains++;
+		}
+		itemCount++;
+
+		table[position].add(value);
+		if (filter != null){
+			filter.add(value.hashCode());
+		}
+	}
+
+	// true if the filter proves value is absent, so the chain need not be scanned
+	private boolean filterRejects(T value){
+		if (filter != null && !filter.mightContain(value.hashCode())){
+			filterRejects++;
+			return true;
+		}
+		return false;
+	}
+
+	// the filter let a lookup through but the chain did not have the value
+	private void filterMissed(){
+		if (filter != null){
+			filterFalsePositives++;
+		}
+	}
+
 	/**
 	 * Remove method
 	 * @param value T
@@ -79,13 +173,24 @@ class HashTable<T> {
 		// returns true if you remove the item
 		// returns false if the item could not be found
 
-		int position = value.hashCode() % table.length;
+		if (filterRejects(value)){
+			return false;
+		}
+		int position = bucketOf(value);
 
-		if (table[position] == null){
+		if (table[position] == null || !table[position].remove(value)){
+			filterMissed();
 			return false;
 		}
 		itemCount--;
-		return table[position].remove(value);
+		if (filter != null){
+			filter.remove(value.hashCode());
+		}
+		if (table[position].size() == 0){
+			table[position] = null;
+			numOfChains--;
+		}
+		return true;
 
 
 		// O(M) worst case, where M =  size returned by size()
@@ -100,17 +205,18 @@ class HashTable<T> {
 	public boolean contains(T value) {
 		// returns true if the item can be found in the table
 
-		int position = value.hashCode() % table.length;
-
-		if(table[position] == null){
+		if (filterRejects(value)){
 			return false;
 		}
-		if (table[position].contains(value)){
+		int position = bucketOf(value);
+
+		if (table[position] != null && table[position].contains(value)){
 			return true;
 		}
 
 		// O(M) worst case, where M = size returned by size()
 		// O(1) or O(M/N) average case (where M/N is the load)
+		filterMissed();
 		return false;
 	}
 
@@ -126,11 +232,15 @@ class HashTable<T> {
 		//       While "equal" they may not be the same.
 		//       For example, When value is a PAIR<K,V>, 
 		//       its "equals" methods returns true if just the keys are equal.
-		int position = value.hashCode() % table.length;
-		if (table[position] == null){
+		if (filterRejects(value)){
 			return null;
 		}
-		return table[position].get(value);
+		int position = bucketOf(value);
+		T found = table[position] == null ? null : table[position].get(value);
+		if (found == null){
+			filterMissed();
+		}
+		return found;
 
 		// O(M) worst case, where M = size returned by size()
 		// O(1) or O(M/N) average case (where M/N is the load)
@@ -141,11 +251,21 @@ class HashTable<T> {
 	 * @param newCapacity size
 	 * @return boolean
 	 */
-	@SuppressWarnings("unchecked")
 	public boolean rehash(int newCapacity) {
 		// rehash to a larger table size (specified as the
 		// parameter to this method)
-		// O(M) where M = size returned by size()
+		// O(M) where M = size returned by size(),
+		// spread over all cores for a table of PARALLEL_REHASH_MIN values or more
+		return rehash(newCapacity, itemCount >= PARALLEL_REHASH_MIN && ForkJoinPool.getCommonPoolParallelism() > 1);
+	}
+
+	/**
+	 * Rehash method
+	 * @param newCapacity size
+	 * @param parallel use parallelRehash()
+	 * @return boolean
+	 */
+	boolean rehash(int newCapacity, boolean parallel) {
 		if (newCapacity < 2){ // can not rehash to something which can't be considered as a hash table!
 			return false;
 		}
@@ -156,21 +276,154 @@ class HashTable<T> {
 			return false;
 		}
 
+		if (parallel){
+			parallelRehash(newCapacity);
+			return true;
+		}
+
 		Object[] arr = valuesToArray();
 
-		table = new SimpleList[newCapacity]; // increase the table length
+		table = newTable(newCapacity); // increase the table length
 
 		setItemCount(0);
 		setNumOfChains(0);
+		if (filter != null){
+			// rebuilding also clears counters stuck at their maximum
+			filter = new CountingBloomFilter(newCapacity);
+		}
 
+		// values are already unique, and re-adding through add() could
+		// start a nested rehash in the middle of this one
 		for (Object i: arr){
-			add((T) i);
+			@SuppressWarnings("unchecked")
+			T value = (T) i;
+			insert(value);
 		}
 
 		return true;
 				
 	}
 
+	// rehash on all cores in two rounds. Staging: every task takes a slice of
+	// the old buckets and sorts its values by the slice of the new table they go
+	// to, into arrays of its own. Linking: every task takes a slice of the new
+	// table and adds the values staged for it, in old bucket order, so each
+	// new chain has one writer and no locks or CAS are needed.
+	// The new table is built on the side: the table changes only once every
+	// task has succeeded, so a failed rehash leaves it as it was
+	private void parallelRehash(final int newCapacity){
+		final SimpleList<T>[] old = table;
+		final SimpleList<T>[] fresh = newTable(newCapacity);
+		// a few slices per core, so that one slow slice does not hold up the rest
+		final int parts = 4 * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+		// values[s][d]: values from old slice s for new slice d, buckets[s][d] their new buckets
+		final Object[][][] values = new Object[parts][parts][];
+		final int[][][] buckets = new int[parts][parts][];
+		final int[][] counts = new int[parts][parts];
+		final int expected = itemCount / (parts * parts) * 5 / 4 + 16;	// per staging array, grows if needed
+
+		List<Callable<Integer>> staging = new ArrayList<>();
+		for (int s = 0; s < parts; s++){
+			final int slice = s;
+			staging.add(new Callable<Integer>(){
+				public Integer call(){
+					Object[][] v = values[slice];
+					int[][] b = buckets[slice];
+					int[] count = counts[slice];
+					for (int i = (int)((long)old.length * slice / parts); i < (long)old.length * (slice + 1) / parts; i++){
+						if (old[i] == null){
+							continue;
+						}
+						for (T value : old[i]){
+							int bucket = bucketOf(value, newCapacity);
+							int d = (int)((long)bucket * parts / fresh.length);
+							int n = count[d];
+							if (v[d] == null){
+								v[d] = new Object[expected];
+								b[d] = new int[expected];
+							}
+							else if (n == v[d].length){
+								v[d] = Arrays.copyOf(v[d], 2 * n);
+								b[d] = Arrays.copyOf(b[d], 2 * n);
+							}
+							v[d][n] = value;
+							b[d][n] = bucket;
+							count[d] = n + 1;
+						}
+					}
+					return 0;
+				}
+			});
+		}
+		runAll(staging);
+
+		List<Callable<Integer>> linking = new ArrayList<>();
+		for (int d = 0; d < parts; d++){
+			final int slice = d;
+			linking.add(new Callable<Integer>(){
+				public Integer call(){
+					int chains = 0;
+					for (int s = 0; s < parts; s++){
+						Object[] v = values[s][slice];
+						int[] b = buckets[s][slice];
+						for (int k = 0; k < counts[s][slice]; k++){
+							if (fresh[b[k]] == null){
+								fresh[b[k]] = new SimpleList<T>();
+								chains++;
+							}
+							@SuppressWarnings("unchecked")
+							T value = (T)v[k];	// staged from a SimpleList<T>
+							fresh[b[k]].add(value);
+						}
+					}
+					return chains;
+				}
+			});
+		}
+		int chains = 0;
+		for (int n : runAll(linking)){
+			chains += n;
+		}
+
+		CountingBloomFilter newFilter = null;
+		if (filter != null){
+			// the filter is not thread-safe: rebuilt here, on one core
+			newFilter = new CountingBloomFilter(newCapacity);
+			for (int s = 0; s < parts; s++){
+				for (int d = 0; d < parts; d++){
+					for (int k = 0; k < counts[s][d]; k++){
+						newFilter.add(values[s][d][k].hashCode());
+					}
+				}
+			}
+		}
+
+		// every task succeeded: switch to the new table
+		table = fresh;
+		setNumOfChains(chains);
+		if (newFilter != null){
+			filter = newFilter;
+		}
+	}
+
+	// run the tasks on the common pool, results in task order
+	private static <R> List<R> runAll(List<Callable<R>> tasks){
+		List<R> results = new ArrayList<>();
+		try {
+			for (Future<R> f : ForkJoinPool.commonPool().invokeAll(tasks)){
+				results.add(f.get());
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("rehash interrupted!", e);
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException("rehash task failed!", e.getCause());
+		}
+		return results;
+	}
+
 	/**
 	 * Get size method
 	 * @return size
@@ -202,6 +455,50 @@ class HashTable<T> {
 		return (double)itemCount/(double)numOfChains;
 	}
 
+	/**
+	 * Get the number of buckets
+	 * @return capacity
+	 */
+	public int capacity(){
+		// O(1)
+		return table.length;
+	}
+
+	/**
+	 * Get the chain length distribution: element k of the result is the
+	 * number of buckets holding exactly k values (k = 0 counts empty buckets)
+	 * @return chain length counts
+	 */
+	public int[] chainLengthCounts(){
+		// O(N) where N is the table length
+		int longest = 0;
+		for (SimpleList<T> chain : table){
+			if (chain != null){
+				longest = Math.max(longest, chain.size());
+			}
+		}
+		int[] counts = new int[longest + 1];
+		for (SimpleList<T> chain : table){
+			counts[chain == null ? 0 : chain.size()]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Get the observed false positive rate of the negative-lookup filter:
+	 * of all lookups for absent values, the fraction the filter let through
+	 * to a bucket scan. 0 if there is no filter or no miss yet.
+	 * @return false positive rate
+	 */
+	public double getFilterFalsePositiveRate(){
+		// O(1)
+		long misses = filterRejects + filterFalsePositives;
+		if (misses == 0){
+			return 0;
+		}
+		return (double)filterFalsePositives / (double)misses;
+	}
+
 	/**
 	 * valuesToArray
 	 * @return Object
@@ -217,7 +514,7 @@ class HashTable<T> {
 		int num = 0;
 		for (int i = 0; i < table.length; i++){
 			if (this.table[i] != null){
-				Iterator iter = this.table[i].iterator();
+				Iterator<T> iter = this.table[i].iterator();
 				while (iter.hasNext()){
 					array[num] = iter.next();
 					num++;
@@ -250,6 +547,39 @@ class HashTable<T> {
 	
 	//------------------------------------
 	// example test code... edit this as much as you want!
+	// with arguments, also times the sequential and the parallel rehash of
+	// tables of those sizes. Usage: java HashTable [SIZE...]
+
+	// a value whose hashCode() fails on demand, to break a rehash midway
+	private static class Fragile{
+		static volatile boolean broken = false;
+		final int id;
+		Fragile(int id){ this.id = id;}
+		public int hashCode(){
+			if (broken && id == 12345){
+				throw new IllegalStateException("broken");
+			}
+			return id;
+		}
+		public boolean equals(Object o){ return o instanceof Fragile && ((Fragile)o).id == id;}
+	}
+
+	// best of 3 rehashes of a table of n values, back and forth between two capacities
+	private static long timeRehash(int n, boolean parallel){
+		HashTable<Integer> table = new HashTable<>(HashStrategy.MURMUR3);
+		for (int i = 0; i < n; i++){
+			table.add(i * 7);
+		}
+		int small = table.capacity(), large = table.nextPrime(2 * small);
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < 6; round++){
+			long start = System.nanoTime();
+			table.rehash(round % 2 == 0 ? large : small, parallel);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
 	public static void main(String[] args) {
 		HashTable<String> names = new HashTable<>();
 
@@ -281,6 +611,87 @@ class HashTable<T> {
 			System.out.println("Yay 3");
 
 		}
+
+		HashTable<Integer> filtered = new HashTable<>(true);
+		for(int i = 0; i < 1000; i += 2) {
+			filtered.add(i);
+		}
+		boolean filterOk = filtered.remove(10) && !filtered.contains(10) && filtered.contains(12) && filtered.get(998) == 998;
+		for(int i = 1; i < 1000 && filterOk; i += 2) {
+			filterOk = !filtered.contains(i) && filtered.get(i) == null && !filtered.remove(i);
+		}
+		System.out.println("filter false positive rate = " + filtered.getFilterFalsePositiveRate());
+		if(filterOk && filtered.size() == 499 && filtered.getFilterFalsePositiveRate() < 0.1) {
+			System.out.println("Yay 4");
+		}
+
+		HashTable<Integer> mixed = new HashTable<>(HashStrategy.MURMUR3);
+		boolean mixedOk = true;
+		for(int i = -500; i < 500; i++) {
+			mixedOk &= mixed.add(i * 1024);
+		}
+		for(int i = -500; i < 500 && mixedOk; i++) {
+			mixedOk = mixed.contains(i * 1024) && !mixed.contains(i * 1024 + 1);
+		}
+		int[] counts = mixed.chainLengthCounts();
+		if(mixedOk && mixed.size() == 1000 && mixed.remove(-1024) && !mixed.contains(-1024) && counts.length <= 6) {
+			System.out.println("Yay 5");
+		}
+
+		// the parallel rehash builds the same chains as the sequential one
+		int numKeys = 300000;
+		HashTable<Integer> seq = new HashTable<>(HashStrategy.MURMUR3, true);
+		HashTable<Integer> par = new HashTable<>(HashStrategy.MURMUR3, true);
+		for(int i = 0; i < numKeys; i++) {
+			seq.add(i * 7);
+			par.add(i * 7);
+		}
+		int newCapacity = seq.nextPrime(4 * seq.capacity());
+		long start = System.nanoTime();
+		boolean rehashOk = seq.rehash(newCapacity, false);
+		long mid = System.nanoTime();
+		rehashOk &= par.rehash(newCapacity, true);
+		long end = System.nanoTime();
+		rehashOk &= Arrays.equals(seq.chainLengthCounts(), par.chainLengthCounts()) && par.size() == numKeys
+			&& par.getAvgChainLength() == seq.getAvgChainLength() && par.capacity() == newCapacity;
+		for(int i = 0; i < numKeys && rehashOk; i++) {
+			rehashOk = par.contains(i * 7) && !par.contains(i * 7 + 1);
+		}
+		System.out.println("rehash of " + numKeys + " values: sequential " + (mid - start) / 1000000 + " ms, parallel "
+			+ (end - mid) / 1000000 + " ms on " + ForkJoinPool.getCommonPoolParallelism() + " worker(s)");
+		if(rehashOk && par.remove(7) && !par.contains(7) && par.size() == numKeys - 1) {
+			System.out.println("Yay 6");
+		}
+
+		// a failed parallel rehash leaves the table as it was
+		HashTable<Fragile> fragile = new HashTable<>();
+		for(int i = 0; i < 20000; i++) {
+			fragile.add(new Fragile(i));
+		}
+		int oldCapacity = fragile.capacity();
+		boolean failed = false;
+		Fragile.broken = true;
+		try {
+			fragile.rehash(fragile.nextPrime(2 * oldCapacity), true);
+		}
+		catch(RuntimeException e) {
+			failed = e.getCause() instanceof IllegalStateException;
+		}
+		Fragile.broken = false;
+		boolean intact = failed && fragile.capacity() == oldCapacity && fragile.size() == 20000;
+		for(int i = 0; i < 20000 && intact; i++) {
+			intact = fragile.contains(new Fragile(i));
+		}
+		if(intact) {
+			System.out.println("Yay 7");
+		}
+
+		for(String arg : args) {
+			int n = Integer.parseInt(arg);
+			long seqTime = timeRehash(n, false), parTime = timeRehash(n, true);
+			System.out.println(String.format("%10d values: sequential %7.1f ms, parallel %7.1f ms (%.2fx) on %d worker(s)", n,
+				seqTime / 1e6, parTime / 1e6, (double)seqTime / parTime, ForkJoinPool.getCommonPoolParallelism()));
+		}
 		
 	}
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/**
+ * This class is a set of int values: HashTable<Integer> without the boxing.
+ * The values live in an int array and are compared with ==, and buckets are
+ * picked from the same hash Integer.hashCode() gives, so both tables spread a key
+ * set alike. See PrimitiveHashTable for the chains and the growth policy.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class IntHashSet extends PrimitiveHashTable{
+
+	private int[] keys = new int[8];
+
+	/**
+	 * Constructor
+	 */
+	public IntHashSet(){
+		this(HashStrategy.IDENTITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public IntHashSet(HashStrategy strategy){
+		super(strategy);
+	}
+
+	protected int hashAt(int entry){
+		return keys[entry];
+	}
+
+	protected void growEntries(int length){
+		keys = java.util.Arrays.copyOf(keys, length);
+	}
+
+	/**
+	 * Add method
+	 * @param value value
+	 * @return false if the value is already in the set
+	 */
+	public boolean add(int value){
+		// O(1) average case
+		int bucket = bucketOf(value);
+		for (int e = head(bucket); e >= 0; e = next(e)){
+			if (keys[e] == value){
+				return false;
+			}
+		}
+		int entry = newEntry(bucket);	// may replace keys
+		keys[entry] = value;
+		grow();
+		return true;
+	}
+
+	/**
+	 * Contain method
+	 * @param value value
+	 * @return boolean
+	 */
+	public boolean contains(int value){
+		// O(1) average case
+		for (int e = head(bucketOf(value)); e >= 0; e = next(e)){
+			if (keys[e] == value){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove method
+	 * @param value value
+	 * @return false if the value was not in the set
+	 */
+	public boolean remove(int value){
+		// O(1) average case
+		int bucket = bucketOf(value);
+		for (int e = head(bucket), prev = -1; e >= 0; prev = e, e = next(e)){
+			if (keys[e] == value){
+				removeEntry(bucket, prev, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get all values
+	 * @return values, in no particular order
+	 */
+	public int[] toArray(){
+		// O(N + M)
+		int[] entries = entries();
+		int[] values = new int[entries.length];
+		for (int i = 0; i < entries.length; i++){
+			values[i] = keys[entries[i]];
+		}
+		return values;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	// also times lookups against HashTable<Integer>. Usage: java IntHashSet [NUM_KEYS]
+	public static void main(String[] args){
+		IntHashSet set = new IntHashSet();
+		if (set.add(5) && set.add(-7) && !set.add(5) && set.size() == 2 && set.contains(-7) && !set.contains(6)){
+			System.out.println("Yay 1");
+		}
+
+		if (set.remove(5) && !set.remove(5) && !set.contains(5) && set.toArray().length == 1 && set.toArray()[0] == -7){
+			System.out.println("Yay 2");
+		}
+
+		// same growth as HashTable for the same keys
+		HashTable<Integer> boxed = new HashTable<>();
+		for (int i = 0; i < 1000; i++){
+			set.add(i * 13);
+			boxed.add(i * 13);
+		}
+		boxed.add(-7);
+		if (set.size() == boxed.size() && set.capacity() == boxed.capacity()
+			&& java.util.Arrays.equals(set.chainLengthCounts(), boxed.chainLengthCounts())
+			&& set.getAvgChainLength() <= 1.2){
+			System.out.println("Yay 3");
+		}
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		IntHashSet ints = new IntHashSet(HashStrategy.MURMUR3);
+		HashTable<Integer> table = new HashTable<>(HashStrategy.MURMUR3);
+		for (int i = 0; i < n; i++){
+			ints.add(i * 3);
+			table.add(i * 3);
+		}
+		for (int round = 0; round < 3; round++){
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < 2 * n; i++){
+				found += ints.contains(i * 3 / 2) ? 1 : 0;
+			}
+			long mid = System.nanoTime();
+			for (int i = 0; i < 2 * n; i++){
+				found -= table.contains(i * 3 / 2) ? 1 : 0;
+			}
+			long end = System.nanoTime();
+			if (round == 2){
+				System.out.println(2 * n + " lookups: IntHashSet " + (mid - start) / 1000000 + " ms, HashTable<Integer> "
+					+ (end - mid) / 1000000 + " ms" + (found == 0 ? "" : " (results differ!)"));
+			}
+		}
+	}
+}
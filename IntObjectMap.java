@@ -0,0 +1,168 @@
+/**
+ * This class is a dictionary from int keys to values: HashMap<Integer,V> without
+ * the boxing or the Pair per entry. Keys live in an int array and values in a
+ * parallel array; see PrimitiveHashTable for the chains and the growth policy.
+ * The methods mirror HashMap: add() never replaces, update() never inserts.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class IntObjectMap<V> extends PrimitiveHashTable{
+
+	private int[] keys = new int[8];
+	private Object[] values = new Object[8];
+
+	/**
+	 * Constructor
+	 */
+	public IntObjectMap(){
+		this(HashStrategy.IDENTITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public IntObjectMap(HashStrategy strategy){
+		super(strategy);
+	}
+
+	protected int hashAt(int entry){
+		return keys[entry];
+	}
+
+	protected void growEntries(int length){
+		keys = java.util.Arrays.copyOf(keys, length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+	protected void clearEntry(int entry){
+		values[entry] = null;
+	}
+
+	// entry holding key, or -1
+	private int find(int key){
+		for (int e = head(bucketOf(key)); e >= 0; e = next(e)){
+			if (keys[e] == key){
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add a new key/value pair
+	 * @param key key
+	 * @param value value
+	 * @return false if the key is already there
+	 */
+	public boolean add(int key, V value){
+		// O(1) average case
+		if (find(key) >= 0){
+			return false;
+		}
+		int entry = newEntry(bucketOf(key));	// may replace the arrays
+		keys[entry] = key;
+		values[entry] = value;
+		grow();
+		return true;
+	}
+
+	/**
+	 * Update the value of a key
+	 * @param key key
+	 * @param value new value
+	 * @return false if the key is not there
+	 */
+	public boolean update(int key, V value){
+		// O(1) average case
+		int entry = find(key);
+		if (entry < 0){
+			return false;
+		}
+		values[entry] = value;
+		return true;
+	}
+
+	/**
+	 * Remove a key and its value
+	 * @param key key
+	 * @return false if the key is not there
+	 */
+	public boolean remove(int key){
+		// O(1) average case
+		int bucket = bucketOf(key);
+		for (int e = head(bucket), prev = -1; e >= 0; prev = e, e = next(e)){
+			if (keys[e] == key){
+				removeEntry(bucket, prev, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the value of a key
+	 * @param key key
+	 * @return value, null if the key is not there
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key){
+		// O(1) average case
+		int entry = find(key);
+		return entry < 0 ? null : (V)values[entry];
+	}
+
+	/**
+	 * Contain method
+	 * @param key key
+	 * @return boolean
+	 */
+	public boolean contains(int key){
+		// O(1) average case
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Get all keys
+	 * @return keys, in no particular order
+	 */
+	public int[] keysToArray(){
+		// O(N + M)
+		int[] entries = entries();
+		int[] result = new int[entries.length];
+		for (int i = 0; i < entries.length; i++){
+			result[i] = keys[entries[i]];
+		}
+		return result;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	public static void main(String[] args){
+		IntObjectMap<String> names = new IntObjectMap<>();
+		if (names.add(1, "Alice") && names.add(-2, "Bob") && !names.add(1, "Carol") && names.get(1).equals("Alice")
+			&& names.size() == 2 && names.get(3) == null){
+			System.out.println("Yay 1");
+		}
+
+		if (names.update(1, "Carol") && !names.update(3, "Dan") && names.get(1).equals("Carol")
+			&& names.remove(-2) && !names.contains(-2) && names.keysToArray().length == 1){
+			System.out.println("Yay 2");
+		}
+
+		for (int i = 0; i < 10000; i++){
+			names.add(i * 1000, "n" + i);
+		}
+		boolean all = true;
+		for (int i = 0; i < 10000; i++){
+			all &= ("n" + i).equals(names.get(i * 1000));
+			if (i % 2 == 1){
+				names.remove(i * 1000);
+			}
+		}
+		if (all && names.size() == 5001 && names.get(1000) == null && names.getAvgChainLength() <= 1.2){
+			System.out.println("Yay 3");
+		}
+	}
+}
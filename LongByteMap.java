@@ -0,0 +1,185 @@
+/**
+ * This class is a dictionary from long keys to byte values: HashMap<Long,Byte>
+ * without the boxing or the Pair per entry, about 13 bytes per entry plus the
+ * bucket array. Keys live in a long array and values in a parallel byte array;
+ * see PrimitiveHashTable for the chains and the growth policy.
+ * The methods mirror HashMap: add() never replaces, update() never inserts.
+ * Value 0 cannot be stored: get() returns it for a missing key.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class LongByteMap extends PrimitiveHashTable{
+
+	private long[] keys = new long[8];
+	private byte[] values = new byte[8];
+
+	/**
+	 * Constructor
+	 */
+	public LongByteMap(){
+		this(HashStrategy.IDENTITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public LongByteMap(HashStrategy strategy){
+		super(strategy);
+	}
+
+	// same as Long.hashCode()
+	private static int hash(long key){
+		return (int)(key ^ (key >>> 32));
+	}
+
+	protected int hashAt(int entry){
+		return hash(keys[entry]);
+	}
+
+	protected void growEntries(int length){
+		keys = java.util.Arrays.copyOf(keys, length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+	// entry holding key, or -1
+	private int find(long key){
+		for (int e = head(bucketOf(hash(key))); e >= 0; e = next(e)){
+			if (keys[e] == key){
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add a new key/value pair
+	 * @param key key
+	 * @param value value, not 0
+	 * @return false if the key is already there
+	 */
+	public boolean add(long key, byte value){
+		// O(1) average case
+		if (value == 0){
+			throw new RuntimeException("value 0 is reserved for missing keys!");
+		}
+		if (find(key) >= 0){
+			return false;
+		}
+		int entry = newEntry(bucketOf(hash(key)));	// may replace the arrays
+		keys[entry] = key;
+		values[entry] = value;
+		grow();
+		return true;
+	}
+
+	/**
+	 * Update the value of a key
+	 * @param key key
+	 * @param value new value, not 0
+	 * @return false if the key is not there
+	 */
+	public boolean update(long key, byte value){
+		// O(1) average case
+		if (value == 0){
+			throw new RuntimeException("value 0 is reserved for missing keys!");
+		}
+		int entry = find(key);
+		if (entry < 0){
+			return false;
+		}
+		values[entry] = value;
+		return true;
+	}
+
+	/**
+	 * Remove a key and its value
+	 * @param key key
+	 * @return false if the key is not there
+	 */
+	public boolean remove(long key){
+		// O(1) average case
+		int bucket = bucketOf(hash(key));
+		for (int e = head(bucket), prev = -1; e >= 0; prev = e, e = next(e)){
+			if (keys[e] == key){
+				removeEntry(bucket, prev, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the value of a key
+	 * @param key key
+	 * @return value, 0 if the key is not there
+	 */
+	public byte get(long key){
+		// O(1) average case
+		int entry = find(key);
+		return entry < 0 ? 0 : values[entry];
+	}
+
+	/**
+	 * Contain method
+	 * @param key key
+	 * @return boolean
+	 */
+	public boolean contains(long key){
+		// O(1) average case
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Get all keys
+	 * @return keys, in no particular order
+	 */
+	public long[] keysToArray(){
+		// O(N + M)
+		int[] entries = entries();
+		long[] result = new long[entries.length];
+		for (int i = 0; i < entries.length; i++){
+			result[i] = keys[entries[i]];
+		}
+		return result;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	public static void main(String[] args){
+		LongByteMap cells = new LongByteMap();
+		long big = 1L << 40;
+		if (cells.add(big, (byte)1) && cells.add(-big, (byte)2) && !cells.add(big, (byte)3) && cells.get(big) == 1
+			&& cells.size() == 2 && cells.get(big + 1) == 0 && !cells.contains(big + 1)){
+			System.out.println("Yay 1");
+		}
+
+		boolean refused = false;
+		try {
+			cells.add(7, (byte)0);
+		}
+		catch(RuntimeException e) {
+			refused = true;
+		}
+		if (refused && cells.update(big, (byte)3) && !cells.update(3, (byte)1) && cells.get(big) == 3
+			&& cells.remove(-big) && !cells.contains(-big) && cells.keysToArray()[0] == big){
+			System.out.println("Yay 2");
+		}
+
+		LongByteMap grid = new LongByteMap(HashStrategy.MURMUR3);
+		for (int i = 0; i < 10000; i++){
+			grid.add(1000L * i + 7, (byte)(1 + i % 2));
+		}
+		boolean all = true;
+		for (int i = 0; i < 10000; i++){
+			all &= grid.get(1000L * i + 7) == 1 + i % 2;
+			if (i % 2 == 1){
+				grid.remove(1000L * i + 7);
+			}
+		}
+		if (all && grid.size() == 5000 && grid.get(1007) == 0 && grid.getAvgChainLength() <= 1.2){
+			System.out.println("Yay 3");
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * This class is a set of long values: HashTable<Long> without the boxing.
+ * The values live in a long array and are compared with ==, and buckets are
+ * picked from the same hash Long.hashCode() gives, so both tables spread a key
+ * set alike. See PrimitiveHashTable for the chains and the growth policy.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class LongHashSet extends PrimitiveHashTable{
+
+	private long[] keys = new long[8];
+
+	/**
+	 * Constructor
+	 */
+	public LongHashSet(){
+		this(HashStrategy.IDENTITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public LongHashSet(HashStrategy strategy){
+		super(strategy);
+	}
+
+	// same as Long.hashCode()
+	private static int hash(long value){
+		return (int)(value ^ (value >>> 32));
+	}
+
+	protected int hashAt(int entry){
+		return hash(keys[entry]);
+	}
+
+	protected void growEntries(int length){
+		keys = java.util.Arrays.copyOf(keys, length);
+	}
+
+	/**
+	 * Add method
+	 * @param value value
+	 * @return false if the value is already in the set
+	 */
+	public boolean add(long value){
+		// O(1) average case
+		int bucket = bucketOf(hash(value));
+		for (int e = head(bucket); e >= 0; e = next(e)){
+			if (keys[e] == value){
+				return false;
+			}
+		}
+		int entry = newEntry(bucket);	// may replace keys
+		keys[entry] = value;
+		grow();
+		return true;
+	}
+
+	/**
+	 * Contain method
+	 * @param value value
+	 * @return boolean
+	 */
+	public boolean contains(long value){
+		// O(1) average case
+		for (int e = head(bucketOf(hash(value))); e >= 0; e = next(e)){
+			if (keys[e] == value){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove method
+	 * @param value value
+	 * @return false if the value was not in the set
+	 */
+	public boolean remove(long value){
+		// O(1) average case
+		int bucket = bucketOf(hash(value));
+		for (int e = head(bucket), prev = -1; e >= 0; prev = e, e = next(e)){
+			if (keys[e] == value){
+				removeEntry(bucket, prev, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get all values
+	 * @return values, in no particular order
+	 */
+	public long[] toArray(){
+		// O(N + M)
+		int[] entries = entries();
+		long[] values = new long[entries.length];
+		for (int i = 0; i < entries.length; i++){
+			values[i] = keys[entries[i]];
+		}
+		return values;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	public static void main(String[] args){
+		LongHashSet set = new LongHashSet();
+		long big = 1L << 40;
+		if (set.add(big) && set.add(big + 1) && !set.add(big) && set.size() == 2 && set.contains(big + 1) && !set.contains(1)){
+			System.out.println("Yay 1");
+		}
+
+		if (set.remove(big) && !set.remove(big) && !set.contains(big) && set.toArray().length == 1 && set.toArray()[0] == big + 1){
+			System.out.println("Yay 2");
+		}
+
+		// zobrist hashes of boards, the keys this set is meant for
+		HashTable<Long> boxed = new HashTable<>();
+		boxed.add(big + 1);
+		for (int r = 0; r < 40; r++){
+			for (int c = 0; c < 40; c++){
+				set.add(TentTree.zobristKey(r, c, true));
+				boxed.add(TentTree.zobristKey(r, c, true));
+			}
+		}
+		if (set.size() == boxed.size() && set.capacity() == boxed.capacity()
+			&& java.util.Arrays.equals(set.chainLengthCounts(), boxed.chainLengthCounts())){
+			System.out.println("Yay 3");
+		}
+	}
+}
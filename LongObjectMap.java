@@ -0,0 +1,174 @@
+/**
+ * This class is a dictionary from long keys to values: HashMap<Long,V> without
+ * the boxing or the Pair per entry. Keys live in a long array and values in a
+ * parallel array; see PrimitiveHashTable for the chains and the growth policy.
+ * The methods mirror HashMap: add() never replaces, update() never inserts.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class LongObjectMap<V> extends PrimitiveHashTable{
+
+	private long[] keys = new long[8];
+	private Object[] values = new Object[8];
+
+	/**
+	 * Constructor
+	 */
+	public LongObjectMap(){
+		this(HashStrategy.IDENTITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	public LongObjectMap(HashStrategy strategy){
+		super(strategy);
+	}
+
+	// same as Long.hashCode()
+	private static int hash(long key){
+		return (int)(key ^ (key >>> 32));
+	}
+
+	protected int hashAt(int entry){
+		return hash(keys[entry]);
+	}
+
+	protected void growEntries(int length){
+		keys = java.util.Arrays.copyOf(keys, length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+	protected void clearEntry(int entry){
+		values[entry] = null;
+	}
+
+	// entry holding key, or -1
+	private int find(long key){
+		for (int e = head(bucketOf(hash(key))); e >= 0; e = next(e)){
+			if (keys[e] == key){
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add a new key/value pair
+	 * @param key key
+	 * @param value value
+	 * @return false if the key is already there
+	 */
+	public boolean add(long key, V value){
+		// O(1) average case
+		if (find(key) >= 0){
+			return false;
+		}
+		int entry = newEntry(bucketOf(hash(key)));	// may replace the arrays
+		keys[entry] = key;
+		values[entry] = value;
+		grow();
+		return true;
+	}
+
+	/**
+	 * Update the value of a key
+	 * @param key key
+	 * @param value new value
+	 * @return false if the key is not there
+	 */
+	public boolean update(long key, V value){
+		// O(1) average case
+		int entry = find(key);
+		if (entry < 0){
+			return false;
+		}
+		values[entry] = value;
+		return true;
+	}
+
+	/**
+	 * Remove a key and its value
+	 * @param key key
+	 * @return false if the key is not there
+	 */
+	public boolean remove(long key){
+		// O(1) average case
+		int bucket = bucketOf(hash(key));
+		for (int e = head(bucket), prev = -1; e >= 0; prev = e, e = next(e)){
+			if (keys[e] == key){
+				removeEntry(bucket, prev, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the value of a key
+	 * @param key key
+	 * @return value, null if the key is not there
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key){
+		// O(1) average case
+		int entry = find(key);
+		return entry < 0 ? null : (V)values[entry];
+	}
+
+	/**
+	 * Contain method
+	 * @param key key
+	 * @return boolean
+	 */
+	public boolean contains(long key){
+		// O(1) average case
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Get all keys
+	 * @return keys, in no particular order
+	 */
+	public long[] keysToArray(){
+		// O(N + M)
+		int[] entries = entries();
+		long[] result = new long[entries.length];
+		for (int i = 0; i < entries.length; i++){
+			result[i] = keys[entries[i]];
+		}
+		return result;
+	}
+
+	//------------------------------------
+	// example test code... edit this as much as you want!
+	public static void main(String[] args){
+		LongObjectMap<String> names = new LongObjectMap<>();
+		long big = 1L << 40;
+		if (names.add(big, "Alice") && names.add(-big, "Bob") && !names.add(big, "Carol") && names.get(big).equals("Alice")
+			&& names.size() == 2 && names.get(big + 1) == null){
+			System.out.println("Yay 1");
+		}
+
+		if (names.update(big, "Carol") && !names.update(3, "Dan") && names.get(big).equals("Carol")
+			&& names.remove(-big) && !names.contains(-big) && names.keysToArray()[0] == big){
+			System.out.println("Yay 2");
+		}
+
+		for (int i = 0; i < 10000; i++){
+			names.add(big * i + 1, "n" + i);
+		}
+		boolean all = true;
+		for (int i = 0; i < 10000; i++){
+			all &= ("n" + i).equals(names.get(big * i + 1));
+			if (i % 2 == 1){
+				names.remove(big * i + 1);
+			}
+		}
+		if (all && names.size() == 5001 && names.get(big + 1) == null && names.getAvgChainLength() <= 1.2){
+			System.out.println("Yay 3");
+		}
+	}
+}
@@ -0,0 +1,362 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * This class is an off-heap variant of the tent-tree board. Instead of a HashMap
+ * of Position to String, every cell is packed into 2 bits of a direct ByteBuffer
+ * (00 = empty, 01 = tent, 10 = tree), so a board of R*C cells costs R*C/4 bytes
+ * outside of the Java heap and adds nothing for the garbage collector to trace.
+ * The board must be released with close() once it is no longer needed; any call
+ * after close() fails with an exception. isFreed() tells whether close() gave the
+ * memory back right away or had to leave it to the garbage collector.
+ *
+ * get/set/addTent/removeTent/addTree/hasTent follow the same rules as TentTree.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class OffHeapTentTree{
+
+	private static boolean cleanerWarned = false;	// freeDirect() failure already reported
+
+	private int numRows, numCols;	// size of the 2D board
+	private String treeSymbol, tentSymbol;  // the string representing tree/tent on board
+	private ByteBuffer cells;	// 4 cells per byte, row-major, null once closed
+	private boolean freed = false;	// close() released the memory itself
+
+	/**
+	 * Constructor contains four elements.
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @param tent String of tent
+	 * @param tree String of tree
+	 */
+	public OffHeapTentTree(int numRows, int numCols, String tent, String tree){
+		long numBytes = ((long)numRows * (long)numCols + 3) / 4;
+		if (numRows < 0 || numCols < 0 || numBytes > Integer.MAX_VALUE){
+			throw new RuntimeException("board too large for off-heap storage!");
+		}
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.tentSymbol = tent;
+		this.treeSymbol = tree;
+		// allocateDirect zero-fills, so every cell starts EMPTY
+		this.cells = ByteBuffer.allocateDirect((int)numBytes);
+	}
+
+	/**
+	 * Constructor contains two elements.
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 */
+	public OffHeapTentTree(int numRows, int numCols){
+		this(numRows, numCols, "X", "O");
+	}
+
+	/**
+	 * Get tent symbol method
+	 * @return symbol of tent
+	 */
+	public String getTentSymbol(){ return this.tentSymbol;}
+
+	/**
+	 * Get tree symbol method
+	 * @return symbol of tree
+	 */
+	public String getTreeSymbol(){ return this.treeSymbol;}
+
+	/**
+	 * Get row num method
+	 * @return row num
+	 */
+	public int numRows(){ return this.numRows;}
+
+	/**
+	 * Get col num method
+	 * @return col num
+	 */
+	public int numCols(){ return this.numCols;}
+
+	/**
+	 * Check position is valid or not
+	 * @param pos postion
+	 * @return boolean
+	 */
+	public boolean isValidPosition(Position pos){
+		// only cells that have storage behind them are valid
+		// O(1)
+		return pos.getRow() >= 0 && pos.getRow() < numRows && pos.getCol() >= 0 && pos.getCol() < numCols;
+	}
+
+	/**
+	 * Check Symbol is valid or not
+	 * @param s symbol
+	 * @return boolean
+	 */
+	public boolean isValidSymbol(String s){
+		// O(1)
+		return s.equals(this.tentSymbol) || s.equals(this.treeSymbol);
+	}
+
+	/**
+	 * Set method
+	 * @param pos position
+	 * @param s string
+	 * @return boolean
+	 */
+	public boolean set(Position pos, String s){
+		// same rules as TentTree.set(): invalid position, invalid symbol
+		// or an occupied cell leave the board unchanged and return false
+		// O(1)
+		if (!isValidPosition(pos) || !isValidSymbol(s)){
+			return false;
+		}
+		long index = index(pos);
+		if (readCell(index) != CellCode.EMPTY){
+			return false;
+		}
+		writeCell(index, s.equals(tentSymbol) ? CellCode.TENT : CellCode.TREE);
+		return true;
+	}
+
+	/**
+	 * Get method
+	 * @param pos position
+	 * @return String
+	 */
+	public String get(Position pos){
+		// return null for invalid positions and empty cells
+		// O(1)
+		if (!isValidPosition(pos)){
+			return null;
+		}
+		return decode(readCell(index(pos)));
+	}
+
+	/**
+	 * Add tent method
+	 * @param pos position
+	 * @return boolean
+	 */
+	public boolean addTent(Position pos){
+		// O(1)
+		return set(pos, tentSymbol);
+	}
+
+	/**
+	 * Remove tent method
+	 * @param pos position
+	 * @return boolean
+	 */
+	public boolean removeTent(Position pos){
+		// O(1)
+		if (!hasTent(pos)){
+			return false;
+		}
+		writeCell(index(pos), CellCode.EMPTY);
+		return true;
+	}
+
+	/**
+	 * Add tree method
+	 * @param pos position
+	 * @return boolean
+	 */
+	public boolean addTree(Position pos){
+		// O(1)
+		return set(pos, treeSymbol);
+	}
+
+	/**
+	 * Check has tent or not
+	 * @param pos position
+	 * @return boolean
+	 */
+	public boolean hasTent(Position pos){
+		// O(1)
+		return isValidPosition(pos) && readCell(index(pos)) == CellCode.TENT;
+	}
+
+	/**
+	 * Check whether the off-heap memory is still held
+	 * @return boolean
+	 */
+	public boolean isOpen(){
+		return cells != null;
+	}
+
+	/**
+	 * Check whether close() released the off-heap memory right away. If it
+	 * could not (no Unsafe.invokeCleaner on this JVM), the memory stays
+	 * allocated until the GC collects the buffer.
+	 * @return boolean, false while the board is open
+	 */
+	public boolean isFreed(){
+		return freed;
+	}
+
+	/**
+	 * Release the off-heap memory of this board.
+	 * Calling close() more than once has no effect.
+	 */
+	public void close(){
+		if (cells == null){
+			return;
+		}
+		ByteBuffer toFree = cells;
+		cells = null;
+		freed = freeDirect(toFree);
+	}
+
+	/***
+	 * methods that return a string of the board representation
+	 * same layout as TentTree.toString()
+	 * @return a string
+	 */
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder("");
+		for (int i=0; i<numRows; i++){
+			for (int j =0; j<numCols; j++){
+				String s = decode(readCell((long)i * numCols + j));
+				sb.append(String.format("%5s ", s == null ? "-" : s));
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	private long index(Position pos){
+		return (long)pos.getRow() * numCols + pos.getCol();
+	}
+
+	private String decode(int code){
+		if (code == CellCode.TENT){
+			return tentSymbol;
+		}
+		if (code == CellCode.TREE){
+			return treeSymbol;
+		}
+		return null;
+	}
+
+	private int readCell(long index){
+		int b = buffer().get((int)(index >>> 2));
+		return (b >>> ((int)(index & 3) << 1)) & 3;
+	}
+
+	private void writeCell(long index, int code){
+		ByteBuffer buf = buffer();
+		int at = (int)(index >>> 2);
+		int shift = (int)(index & 3) << 1;
+		int b = buf.get(at);
+		buf.put(at, (byte)((b & ~(3 << shift)) | (code << shift)));
+	}
+
+	private ByteBuffer buffer(){
+		if (cells == null){
+			throw new RuntimeException("board already closed!");
+		}
+		return cells;
+	}
+
+	// Direct buffers are normally freed only when the GC finds them unreachable.
+	// Use Unsafe.invokeCleaner (JDK 9+) when it is there to free right away;
+	// otherwise dropping the reference is all we can do.
+	// Returns false (and warns once) if the memory was not freed.
+	private static boolean freeDirect(ByteBuffer buf){
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field f = unsafeClass.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			Method clean = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			clean.invoke(f.get(null), buf);
+			return true;
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			if (!cleanerWarned){
+				cleanerWarned = true;
+				System.err.println("OffHeapTentTree: cannot free direct buffers right away, left to the GC (" + e + ")");
+			}
+			return false;
+		}
+	}
+
+
+	// total GC time in ms reported by all collectors so far
+	private static long gcMillis(){
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	// time spent in GC for a few full collections while the board is alive
+	private static long gcPauseWithLiveBoard(Object board){
+		long before = gcMillis();
+		for (int i = 0; i < 5; i++){
+			System.gc();
+		}
+		long after = gcMillis();
+		if (board.hashCode() == 42){ // keep the board reachable across the collections
+			System.out.print("");
+		}
+		return after - before;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// The second half compares GC time with the same trees held in a
+	// HashMap<Position,String> (a fixed on-heap baseline, independent of how
+	// TentTree stores its cells) and in an off-heap board.
+	// Usage: java OffHeapTentTree [size]
+
+	public static void main(String[] args){
+		OffHeapTentTree g = new OffHeapTentTree(3,3);
+		if (g.set(new Position(1,0), "O") && !g.set(new Position(1,0),"O") && g.addTree(new Position(1,2)) && !g.addTree(new Position(1,5))){
+			System.out.println("Yay 1");
+		}
+		if (g.addTent(new Position(0,0)) && g.addTent(new Position(0,1)) && !g.addTent(new Position(1,0))
+			&& g.get(new Position(0,0)).equals("X") && g.hasTent(new Position(0,1)) && !g.hasTent(new Position(1,0))){
+			System.out.println("Yay 2");
+		}
+		if (g.removeTent(new Position(0,1)) && !g.removeTent(new Position(2,1)) && g.get(new Position(2,2))==null
+			&& g.get(new Position(1,2)).equals("O")){
+			System.out.println("Yay 3");
+		}
+		g.close();
+		boolean closed = false;
+		try {
+			g.get(new Position(0,0));
+		}
+		catch (RuntimeException e) {
+			closed = true;
+		}
+		if (closed && !g.isOpen() && !new OffHeapTentTree(1,1).isFreed()){
+			System.out.println("Yay 4");
+		}
+
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		HashMap<Position,String> heap = new HashMap<>();
+		OffHeapTentTree offHeap = new OffHeapTentTree(n, n);
+		for (int i = 0; i < n; i++){
+			for (int j = (i % 3); j < n; j += 3){
+				Position pos = new Position(i, j);
+				heap.put(pos, "O");
+				offHeap.addTree(pos);
+			}
+		}
+		System.out.println("board " + n + " x " + n + ", GC time over 5 full collections:");
+		System.out.println("  HashMap<Position,String>: " + gcPauseWithLiveBoard(heap) + " ms");
+		heap = null;
+		System.gc();
+		System.out.println("  OffHeapTentTree:          " + gcPauseWithLiveBoard(offHeap) + " ms");
+		offHeap.close();
+		System.out.println("  off-heap memory " + (offHeap.isFreed() ? "freed by close()" : "left to the GC"));
+	}
+}
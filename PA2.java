@@ -4,19 +4,28 @@ import java.io.*;
 // this is a simple interface to play the tent-tree game interactively
 // TO RUN: java PA2 PUZZLE_FILE
 // For example, java PA2 puzzles/puzzle1.txt
+//
+// to replay moves without the menu, also give a script file ("-" for stdin):
+// TO RUN: java PA2 PUZZLE_FILE SCRIPT_FILE
+// For example, java PA2 puzzles/puzzle1.txt moves.txt
+// one move per line: "add ROW COL", "remove ROW COL", "check" or "print";
+// lines starting with '#' are comments
 
 class PA2{
 
 	static TentTree game;
+
+	// puzzle files larger than this are parsed by ParallelPuzzleLoader
+	static final long PARALLEL_LOAD_BYTES = 8 << 20;
 	
 	public static void main(String[] args){
 			
-		if (args.length !=1){
-			System.out.println("Run the file as: java PA2 PUZZLE_FILE_NAME");
+		if (args.length !=1 && args.length !=2){
+			System.out.println("Run the file as: java PA2 PUZZLE_FILE_NAME [SCRIPT_FILE_NAME]");
 			return;			
 		}
 		
-		initGame(args[0]); //input file name as the only argument
+		initGame(args[0]); //input file name as the first argument
 
 		if (game==null){
 			System.out.println("Cannot initialize the puzzle!");
@@ -31,6 +40,12 @@ class PA2{
 			System.out.println("not a valid initial setting of tree-tent game!");
 			return;
 		}
+
+		// script file as the second argument: replay it without the menu
+		if (args.length == 2){
+			runScript(args[1]);
+			return;
+		}
 		
 		// puzzle already solved
 		if (check ==1){
@@ -47,111 +62,103 @@ class PA2{
 			
 			switch (choice){
 				case 1: break;
-				case 2: addTent(); break;
-				case 3: removeTent(); break;
-				case 4: int status = game.checkStatus();
-						if (status==3){
-							System.out.println("Invalid puzzle! Double check your tent numbers and locations!");
-						}
-
-						if (status==2){
-							System.out.println("Unfinished puzzle: tree missing tent!");
-						}
-
-						if (status==1){
-							//choice = 1 ; // exit when we are done
-							System.out.println("Puzzle solved! Congratulations!!!");
-						}
-
-						if (status==0){
-							System.out.println("Invalid puzzle! No tree or invalid symbol!");
+				case 2: addTent(in); break;
+				case 3: removeTent(in); break;
+				case 4: System.out.println(statusMessage(game.checkStatus()));
+						if (!game.getStatusDetail().equals("")){
+							System.out.println("(" + game.getStatusDetail() + ")");
 						}
 						break;
 			}
 		} 
 			
 	}
-	
-	// method that returns the next line not starting with '#' from the scanner
-	// any line starts with '#' will be considered as comments and skipped
-	// if no more line from the scanner, return an empty string
-	public static String nextLine(Scanner scanner){
-			while (scanner.hasNextLine()){
-				String line = scanner.nextLine();
-				if (line.startsWith("#"))
+
+	// message shown to the user for a status returned by checkStatus()
+	public static String statusMessage(int status){
+		if (status==3){
+			return "Invalid puzzle! Double check your tent numbers and locations!";
+		}
+		if (status==2){
+			return "Unfinished puzzle: tree missing tent!";
+		}
+		if (status==1){
+			return "Puzzle solved! Congratulations!!!";
+		}
+		return "Invalid puzzle! No tree or invalid symbol!";
+	}
+
+	// replay a move script against game: "-" reads the script from stdin
+	// output is buffered and the board is printed only on a "print" line
+	public static void runScript(String scriptName){
+		try {
+			Reader source = scriptName.equals("-") ? new InputStreamReader(System.in) : new FileReader(scriptName);
+			BufferedReader in = new BufferedReader(source, 1 << 16);
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+			runScript(in, out);
+			out.flush();
+			in.close();
+		}
+		catch(IOException e) {
+			System.out.println("Invalid script file");
+		}
+	}
+
+	// apply every move of the script to game, reporting only failures,
+	// check results and requested boards
+	public static void runScript(BufferedReader in, PrintWriter out) throws IOException{
+		String line;
+		int lineNum = 0;
+		while ((line = in.readLine()) != null){
+			lineNum++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			String[] words = line.split("\\s+");
+			if (words[0].equals("check") && words.length == 1){
+				out.println(statusMessage(game.checkStatus()));
+				if (!game.getStatusDetail().equals("")){
+					out.println("(" + game.getStatusDetail() + ")");
+				}
+			}
+			else if (words[0].equals("print") && words.length == 1){
+				// rows unchanged since the last print come from the render cache
+				game.render(out);
+				out.println();
+			}
+			else if ((words[0].equals("add") || words[0].equals("remove")) && words.length == 3){
+				int row, col;
+				try {
+					row = Integer.parseInt(words[1]);
+					col = Integer.parseInt(words[2]);
+				}
+				catch(NumberFormatException e) {
+					out.println("line " + lineNum + ": Invalid row/col selection!");
 					continue;
-				return line;
-			}	
-			return "";
+				}
+				Position pos = new Position(row, col);
+				if (words[0].equals("add")){
+					if (!game.addTent(pos))
+						out.println("line " + lineNum + ": Cannot add a tent ("+game.getTentSymbol()+") at row " + row+" col "+col+"!");
+				}
+				else if (!game.removeTent(pos)){
+					out.println("line " + lineNum + ": Cannot remove tent("+game.getTentSymbol()+") at row " + row+" col "+col+"!");
+				}
+			}
+			else {
+				out.println("line " + lineNum + ": Invalid move: " + line);
+			}
+		}
 	}
 	
-	
 	// method that accept a file name, open/read from the file 
 	// and initialize a tent-tree puzzle based on file contents
 	
 	public static void initGame(String fileName){
 		
 		try {
-					
-			String tentSymbol = "X", treeSymbol = "O"; //default value of tent is "X", default value of tree is "O"
-			
-			// open the file
-			Scanner fileReader = new Scanner(new File(fileName));	
-			
-			// first two lines specify the size of the puzzle
-			String line = nextLine(fileReader);			
-			int numRows = Integer.parseInt(line);
-			line = nextLine(fileReader);	
-			int numCols = Integer.parseInt(line);
-			
-			// the next two lines specify the tent and tree symbol (optional)
-			// if not specified, use default values: "O" for tree and "X" for tent
-			
-			line = nextLine(fileReader);
-			int numCommas = line.split(",").length;
-			if (numCommas!=3){
-				tentSymbol = line;
-				
-				line = nextLine(fileReader);
-				numCommas = line.split(",").length;
-				if (numCommas!=3){
-					treeSymbol = line;
-					line = nextLine(fileReader);
-				}
-			}
-				
-			// init a 2D grid
-			game = new TentTree(numRows, numCols, tentSymbol, treeSymbol); 
-			
-			// rest of lines specify initial positions of trees and tents
-			// one cell per line in this format: "row,col,symbol"
-			while (!line.equals("")){
-				String[] oneCellString = line.split(",");
-				if (oneCellString.length!=3)
-					throw new RuntimeException("invalid file format!");
-					
-				Position pos = new Position(Integer.parseInt(oneCellString[0]),
-						Integer.parseInt(oneCellString[1]));
-						
-				// exception (and abort) if row/col index not valid
-				if (!game.isValidPosition(pos))
-					throw new RuntimeException("invalid index in file!");
-				
-				// set a tree/tent at position <row, col>
-				if (treeSymbol.equals(oneCellString[2]))
-					game.addTree(pos);
-				else
-					if (tentSymbol.equals(oneCellString[2]))
-						game.addTent(pos);
-					// exception (and abort) if symbol not recognized
-					else
-						throw new RuntimeException("invalid symbol in file!");
-					
-				// read next line
-				line = nextLine(fileReader);
-			}
-		
-			fileReader.close();	
+			game = loadGame(fileName);
 		}
 		catch(IOException e) {
 			System.out.println("Invalid file");
@@ -165,6 +172,131 @@ class PA2{
 		
 	}
 
+	// method that reads a puzzle file and returns a new tent-tree puzzle;
+	// throws RuntimeException with a message if the file contents are invalid
+	public static TentTree loadGame(String fileName) throws IOException{
+		if (new File(fileName).length() > PARALLEL_LOAD_BYTES)
+			return ParallelPuzzleLoader.load(fileName);
+		return readGame(fileName);
+	}
+
+	// method that reads a puzzle file line by line on the calling thread
+	static TentTree readGame(String fileName) throws IOException{
+		try (InputStream in = new FileInputStream(fileName)){
+			return readGame(new PuzzleTokenizer(in));
+		}
+	}
+
+	// method that reads a puzzle from a tokenizer; the RuntimeException for
+	// invalid contents names the line and column of the problem
+	static TentTree readGame(PuzzleTokenizer in) throws IOException{
+		TentTree game = readHeader(in);
+		byte[] tentBytes = game.getTentSymbol().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+		byte[] treeBytes = game.getTreeSymbol().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+		
+		// rest of lines specify initial positions of trees and tents
+		// one cell per line in this format: "row,col,symbol"
+		// up to the first blank line or the end of the file
+		while (!in.isEmpty()){
+			if (in.commas() != 2)
+				throw in.error("invalid file format!");
+			int column = in.column();
+			int row = in.nextInt("invalid file format!");
+			in.skip(",");
+			int col = in.nextInt("invalid file format!");
+			in.skip(",");
+			Position pos = new Position(row, col);
+					
+			// exception (and abort) if row/col index not valid
+			if (!game.isValidPosition(pos))
+				throw in.error("invalid index in file!", column);
+			
+			// set a tree/tent at position <row, col>
+			if (in.restEquals(treeBytes))
+				game.addTree(pos);
+			else
+				if (in.restEquals(tentBytes))
+					game.addTent(pos);
+				// exception (and abort) if symbol not recognized
+				else
+					throw in.error("invalid symbol in file!");
+				
+			// read next line
+			in.nextLine();
+		}
+	
+		return game;
+	}
+
+	// method that reads the header of a puzzle (size, clues, symbols) and
+	// returns the empty board; in is left at the first cell line
+	static TentTree readHeader(PuzzleTokenizer in) throws IOException{
+		String tentSymbol = "X", treeSymbol = "O"; //default value of tent is "X", default value of tree is "O"
+		
+		// first two lines specify the size of the puzzle
+		in.nextLine();
+		int numRows = readNumber(in);
+		in.nextLine();
+		int numCols = readNumber(in);
+		
+		// the next lines may give the tent count of every row and column (optional)
+		// in this format: "rows=N,N,...,N" and "cols=N,N,...,N"
+		int[] rowClues = null, colClues = null;
+		in.nextLine();
+		while (true){
+			if (in.skip("rows="))
+				rowClues = readClues(in);
+			else if (in.skip("cols="))
+				colClues = readClues(in);
+			else
+				break;
+			in.nextLine();
+		}
+		if ((rowClues == null) != (colClues == null))
+			throw in.error("invalid clue in file!");
+
+		// the next two lines specify the tent and tree symbol (optional)
+		// if not specified, use default values: "O" for tree and "X" for tent
+		// (a cell line "row,col,symbol" has exactly two commas)
+		if (in.commas() != 2){
+			tentSymbol = in.rest();
+			
+			in.nextLine();
+			if (in.commas() != 2){
+				treeSymbol = in.rest();
+				in.nextLine();
+			}
+		}
+		// init a 2D grid
+		TentTree game = new TentTree(numRows, numCols, tentSymbol, treeSymbol); 
+		if (rowClues != null)
+			game.setClues(rowClues, colClues);
+		return game;
+	}
+
+	// method that reads a line holding just a board size, at least 1
+	private static int readNumber(PuzzleTokenizer in){
+		int n = in.nextInt("invalid file format!");
+		if (!in.atEnd() || n <= 0)
+			throw in.error("invalid file format!");
+		return n;
+	}
+
+	// method that reads the "N,...,N" of a clue line
+	private static int[] readClues(PuzzleTokenizer in){
+		int[] clues = new int[16];
+		int count = 0;
+		do {
+			int clue = in.nextInt("invalid clue in file!");
+			if (clue < 0)
+				throw in.error("invalid clue in file!");
+			if (count == clues.length)
+				clues = Arrays.copyOf(clues, 2 * count);
+			clues[count++] = clue;
+		} while (in.skip(","));
+		return Arrays.copyOf(clues, count);
+	}
+
 	public static int doMenu(Scanner in)
 	{
 		while(true) {
@@ -193,8 +325,9 @@ class PA2{
 	}
 	
 	// attempt to add one tent to board
-	public static void addTent(){
-		Scanner in = new Scanner(System.in);
+	// reads from the menu's scanner: a second Scanner on System.in
+	// would buffer input away from the first one
+	public static void addTent(Scanner in){
 
 		// keep asking until a valid position <row, col> is received from user
 		while (true){
@@ -231,8 +364,7 @@ class PA2{
 	}
 	
 	// attempt to remove a tent
-	public static void removeTent(){
-		Scanner in = new Scanner(System.in);
+	public static void removeTent(Scanner in){
 
 		// keep asking until a valid position <row, col> is received from user
 		while (true){
@@ -262,7 +394,7 @@ class PA2{
 			}
 			catch(InputMismatchException e) {
 				System.out.println("Invalid row/col selection!");
-			
+				in.nextLine();
 			}
 		}
 	}
@@ -0,0 +1,173 @@
+/**
+ * This class is a dense copy of a board's cells with a one-cell sentinel border:
+ * a (numRows+2) x (numCols+2) byte array, row-major, where every border cell holds
+ * BORDER. Cell (r,c) of the board is at index (r+1)*stride + (c+1), and its
+ * neighbors are at that index plus the fixed offsets in N4 (up, down, left, right)
+ * and N8 (the 8 cells around it). A neighbor scan of a cell on the board is
+ * therefore a handful of plain array reads, with no bounds check and no branch per
+ * neighbor: a border cell never matches TENT or TREE.
+ *
+ * TentTree stores its cells in one instead of its hash map when the board is
+ * small enough (fits()), for get() and the neighbor checks.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class PaddedGrid{
+
+	// boards with more padded cells than this stay sparse
+	static final long MAX_CELLS = 1 << 24;
+
+	private final int stride;
+	private final byte[] cells;
+
+	/**
+	 * Offsets of the 4-way neighbors: up, down, left, right
+	 */
+	final int[] N4;
+
+	/**
+	 * Offsets of the 8 neighbors, row by row
+	 */
+	final int[] N8;
+
+	/**
+	 * Check whether a board is small enough for a padded grid
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @return boolean
+	 */
+	static boolean fits(int numRows, int numCols){
+		return numRows > 0 && numCols > 0 && ((long)numRows + 2) * ((long)numCols + 2) <= MAX_CELLS;
+	}
+
+	/**
+	 * Constructor of an empty board
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 */
+	PaddedGrid(int numRows, int numCols){
+		if (!fits(numRows, numCols)){
+			throw new RuntimeException("board too large for a padded grid!");
+		}
+		stride = numCols + 2;
+		cells = new byte[(numRows + 2) * stride];
+		java.util.Arrays.fill(cells, 0, stride, CellCode.BORDER);
+		java.util.Arrays.fill(cells, cells.length - stride, cells.length, CellCode.BORDER);
+		for (int r = 1; r <= numRows; r++){
+			cells[r * stride] = CellCode.BORDER;
+			cells[r * stride + stride - 1] = CellCode.BORDER;
+		}
+		N4 = new int[]{-stride, stride, -1, 1};
+		N8 = new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+	}
+
+	/**
+	 * Get the index of a cell of the board
+	 * @param row row, 0 to numRows-1
+	 * @param col col, 0 to numCols-1
+	 * @return index
+	 */
+	int index(int row, int col){
+		return (row + 1) * stride + col + 1;
+	}
+
+	/**
+	 * Get a cell
+	 * @param index index
+	 * @return code
+	 */
+	byte get(int index){
+		return cells[index];
+	}
+
+	/**
+	 * Set a cell
+	 * @param index index of a cell of the board
+	 * @param code EMPTY, TENT or TREE
+	 */
+	void set(int index, byte code){
+		cells[index] = code;
+	}
+
+	/**
+	 * Check whether a 4-way neighbor holds code
+	 * @param index index of a cell of the board
+	 * @param code TENT or TREE
+	 * @return boolean
+	 */
+	boolean any4(int index, byte code){
+		// non-short-circuit |: four loads, no branch per neighbor
+		return (cells[index + N4[0]] == code) | (cells[index + N4[1]] == code)
+			| (cells[index + N4[2]] == code) | (cells[index + N4[3]] == code);
+	}
+
+	/**
+	 * Check whether one of the 8 neighbors holds code
+	 * @param index index of a cell of the board
+	 * @param code TENT or TREE
+	 * @return boolean
+	 */
+	boolean any8(int index, byte code){
+		boolean hit = false;
+		for (int k = 0; k < 8; k++){
+			hit |= cells[index + N8[k]] == code;
+		}
+		return hit;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// also times the neighbor checks of TentTree with and without the grid
+
+	public static void main(String[] args){
+		PaddedGrid g = new PaddedGrid(3, 4);
+		g.set(g.index(0, 0), CellCode.TREE);
+		g.set(g.index(2, 3), CellCode.TENT);
+		if (g.any4(g.index(0, 1), CellCode.TREE) && g.any4(g.index(1, 0), CellCode.TREE) && !g.any4(g.index(1, 1), CellCode.TREE)
+			&& g.any8(g.index(1, 1), CellCode.TREE) && g.any8(g.index(1, 2), CellCode.TENT) && !g.any8(g.index(0, 3), CellCode.TENT)){
+			System.out.println("Yay 1");
+		}
+
+		// the border is never a tent or tree, and never a board cell
+		if (g.get(g.index(-1, 0)) == CellCode.BORDER && g.get(g.index(3, 3)) == CellCode.BORDER && g.get(g.index(0, 4)) == CellCode.BORDER
+			&& g.get(g.index(0, -1)) == CellCode.BORDER && !g.any8(g.index(0, 0), CellCode.TENT) && fits(4000, 4000) && !fits(5000, 5000)){
+			System.out.println("Yay 2");
+		}
+
+		int side = 300;
+		TentTree dense = new PuzzleGenerator(side, side, 44, 0.15).toTentTree(true);
+		TentTree sparse = new TentTree(side + 1, 60000);	// too big for a padded grid
+		for (Object o : dense.getOccupiedCells()){
+			sparse.set((Position)o, dense.get((Position)o));
+		}
+		Position[] probes = new Position[side * side];
+		for (int i = 0; i < probes.length; i++){
+			probes[i] = new Position(i / side, i % side);
+		}
+		boolean same = true;
+		for (Position p : probes){
+			same &= dense.posHasNbr(p, "O") == sparse.posHasNbr(p, "O") && dense.posTouching(p, "X") == sparse.posTouching(p, "X")
+				&& (dense.get(p) == null ? sparse.get(p) == null : dense.get(p).equals(sparse.get(p)));
+		}
+		if (same && !dense.isValidPosition(new Position(side, 0)) && !dense.isValidPosition(new Position(0, side))){
+			System.out.println("Yay 3");
+		}
+		for (int round = 0; round < 3; round++){
+			long start = System.nanoTime();
+			int hits = 0;
+			for (Position p : probes){
+				hits += (dense.posHasNbr(p, "O") ? 1 : 0) + (dense.posTouching(p, "X") ? 1 : 0);
+			}
+			long mid = System.nanoTime();
+			for (Position p : probes){
+				hits -= (sparse.posHasNbr(p, "O") ? 1 : 0) + (sparse.posTouching(p, "X") ? 1 : 0);
+			}
+			long end = System.nanoTime();
+			if (round == 2){
+				System.out.println(probes.length + " cells, posHasNbr + posTouching: padded grid " + (mid - start) / 1000000
+					+ " ms, hash map only " + (end - mid) / 1000000 + " ms" + (hits == 0 ? "" : " (results differ!)"));
+			}
+		}
+	}
+}
@@ -0,0 +1,387 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class loads a puzzle file with many worker threads. The header (size,
+ * clues, symbols) is read by PA2.readHeader() over the mapped file; the cell section is then
+ * cut into one chunk per worker at line boundaries, and every worker parses its
+ * chunk straight from the memory-mapped file into its own primitive buffers.
+ * The chunks are merged into the TentTree in file order, so the result is exactly
+ * what the sequential loader builds: a repeated or conflicting cell is ignored by
+ * set() just like before (the first one in the file wins), the first blank line
+ * ends the cell section, and the first bad line in the file is the one reported,
+ * with the same message, line and column.
+ *
+ * Files up to 2 GB are supported (one mapping).
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class ParallelPuzzleLoader{
+
+	// cells of one chunk, in file order
+	private static class Chunk{
+		int start, end;	// byte range in the file
+		int count = 0;
+		int[] rows = new int[1024];
+		int[] cols = new int[1024];
+		byte[] codes = new byte[1024];
+		String error = null;	// first problem in this chunk, parsing stopped there
+		int errorLine, errorAt;	// where the bad line and the bad field start
+		boolean endsCells = false;	// a blank line ended the cell section here
+
+		void add(int row, int col, byte code){
+			if (count == rows.length){
+				rows = Arrays.copyOf(rows, count * 2);
+				cols = Arrays.copyOf(cols, count * 2);
+				codes = Arrays.copyOf(codes, count * 2);
+			}
+			rows[count] = row;
+			cols[count] = col;
+			codes[count] = code;
+			count++;
+		}
+	}
+
+	private final MappedByteBuffer buf;
+	private final int length;
+
+	private int numRows, numCols;
+	private byte[] tentBytes, treeBytes;
+
+	private ParallelPuzzleLoader(MappedByteBuffer buf){
+		this.buf = buf;
+		this.length = buf.limit();
+	}
+
+	/**
+	 * Load a puzzle file using one worker per core
+	 * @param fileName puzzle file
+	 * @return board
+	 * @throws IOException if the file cannot be read
+	 */
+	public static TentTree load(String fileName) throws IOException{
+		return load(fileName, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Load a puzzle file; throws RuntimeException with the same messages as
+	 * PA2.readGame() if the file contents are invalid
+	 * @param fileName puzzle file
+	 * @param numThreads number of workers
+	 * @return board
+	 * @throws IOException if the file cannot be read
+	 */
+	public static TentTree load(String fileName, int numThreads) throws IOException{
+		MappedByteBuffer buf;
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			FileChannel channel = file.getChannel()){
+			if (channel.size() > Integer.MAX_VALUE){
+				throw new RuntimeException("file too large!");
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		return new ParallelPuzzleLoader(buf).load(Math.max(1, numThreads));
+	}
+
+	private TentTree load(int numThreads) throws IOException{
+		// header: the sequential loader's own code, over the start of the mapping
+		PuzzleTokenizer in = new PuzzleTokenizer(new BufferInput(buf.duplicate()));
+		TentTree game = PA2.readHeader(in);
+		if (in.isEmpty()){
+			return game;
+		}
+		numRows = game.numRows();
+		numCols = game.numCols();
+		tentBytes = game.getTentSymbol().getBytes(StandardCharsets.UTF_8);
+		treeBytes = game.getTreeSymbol().getBytes(StandardCharsets.UTF_8);
+
+		// cell section: from the first cell line to the end of the file
+		List<Chunk> chunks = split((int)in.lineOffset(), numThreads);
+		parseAll(chunks, numThreads);
+
+		for (Chunk chunk : chunks){
+			if (chunk.error != null){
+				throw error(chunk);
+			}
+			for (int i = 0; i < chunk.count; i++){
+				Position pos = new Position(chunk.rows[i], chunk.cols[i]);
+				if (chunk.codes[i] == CellCode.TREE)
+					game.addTree(pos);
+				else
+					game.addTent(pos);
+			}
+			if (chunk.endsCells){
+				break;
+			}
+		}
+		return game;
+	}
+
+	// the exception for the problem of a chunk, with its line and column like
+	// PuzzleTokenizer.error(); only counts lines once the load has failed
+	private RuntimeException error(Chunk chunk){
+		int line = 1;
+		for (int i = 0; i < chunk.errorLine; i++){
+			if (buf.get(i) == '\n'){
+				line++;
+			}
+		}
+		return new RuntimeException(chunk.error + " (line " + line + ", col " + (chunk.errorAt - chunk.errorLine + 1) + ")");
+	}
+
+	// stop parsing a chunk at a bad field
+	private static void fail(Chunk chunk, String message, int line, int at){
+		chunk.error = message;
+		chunk.errorLine = line;
+		chunk.errorAt = at;
+	}
+
+	// reads a buffer as a stream, for the tokenizer
+	private static class BufferInput extends InputStream{
+		private final ByteBuffer buf;
+
+		BufferInput(ByteBuffer buf){
+			this.buf = buf;
+		}
+
+		public int read(){
+			return buf.hasRemaining() ? buf.get() & 0xff : -1;
+		}
+
+		public int read(byte[] b, int off, int len){
+			if (!buf.hasRemaining()){
+				return -1;
+			}
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+	}
+
+	// index of the '\n' ending the line at from, or length
+	private int lineEnd(int from){
+		while (from < length && buf.get(from) != '\n'){
+			from++;
+		}
+		return from;
+	}
+
+	// cut [start, length) into up to n chunks that all begin at a line start
+	private List<Chunk> split(int start, int n){
+		List<Chunk> chunks = new ArrayList<>();
+		long size = length - start;
+		int from = start;
+		for (int k = 1; k <= n && from < length; k++){
+			int to = (k == n) ? length : (int)(start + size * k / n);
+			if (to < from){
+				continue;
+			}
+			to = Math.min(length, lineEnd(to) + 1);
+			Chunk chunk = new Chunk();
+			chunk.start = from;
+			chunk.end = to;
+			chunks.add(chunk);
+			from = to;
+		}
+		return chunks;
+	}
+
+	private void parseAll(List<Chunk> chunks, int numThreads){
+		if (chunks.size() == 1){
+			parse(chunks.get(0));
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, chunks.size()));
+		try {
+			List<Future<?>> jobs = new ArrayList<>();
+			for (final Chunk chunk : chunks){
+				jobs.add(pool.submit(new Runnable(){
+					public void run(){
+						parse(chunk);
+					}
+				}));
+			}
+			for (Future<?> job : jobs){
+				job.get();
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("cannot load file: interrupted!", e);
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException("cannot load file!", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	// parse the "row,col,symbol" lines of one chunk
+	private void parse(Chunk chunk){
+		int p = chunk.start;
+		while (p < chunk.end){
+			int end = lineEnd(p);
+			int stop = (end > p && buf.get(end - 1) == '\r') ? end - 1 : end;
+			int next = end + 1;
+			if (stop == p){
+				chunk.endsCells = true;
+				return;
+			}
+			if (buf.get(p) == '#'){
+				p = next;
+				continue;
+			}
+
+			int comma1 = indexOf(p, stop, (byte)',');
+			int comma2 = comma1 < 0 ? -1 : indexOf(comma1 + 1, stop, (byte)',');
+			if (comma2 < 0 || indexOf(comma2 + 1, stop, (byte)',') >= 0){
+				fail(chunk, "invalid file format!", p, p);
+				return;
+			}
+			long row = parseInt(p, comma1);
+			if (row == Long.MIN_VALUE){
+				fail(chunk, "invalid file format!", p, p);
+				return;
+			}
+			long col = parseInt(comma1 + 1, comma2);
+			if (col == Long.MIN_VALUE){
+				fail(chunk, "invalid file format!", p, comma1 + 1);
+				return;
+			}
+			if (row < 0 || row >= numRows || col < 0 || col >= numCols){
+				fail(chunk, "invalid index in file!", p, p);
+				return;
+			}
+			byte code;
+			if (matches(comma2 + 1, stop, treeBytes))
+				code = CellCode.TREE;
+			else if (matches(comma2 + 1, stop, tentBytes))
+				code = CellCode.TENT;
+			else {
+				fail(chunk, "invalid symbol in file!", p, comma2 + 1);
+				return;
+			}
+			chunk.add((int)row, (int)col, code);
+			p = next;
+		}
+	}
+
+	private int indexOf(int from, int to, byte b){
+		for (int i = from; i < to; i++){
+			if (buf.get(i) == b){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// signed decimal number in [from, to), Long.MIN_VALUE if malformed or out of
+	// int range: the same numbers as PuzzleTokenizer.nextInt()
+	private long parseInt(int from, int to){
+		boolean negative = false;
+		if (from < to && (buf.get(from) == '-' || buf.get(from) == '+')){
+			negative = buf.get(from) == '-';
+			from++;
+		}
+		if (from >= to){
+			return Long.MIN_VALUE;
+		}
+		long value = 0, max = negative ? -(long)Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int i = from; i < to; i++){
+			int d = buf.get(i) - '0';
+			if (d < 0 || d > 9 || (value = value * 10 + d) > max){
+				return Long.MIN_VALUE;
+			}
+		}
+		return negative ? -value : value;
+	}
+
+	private boolean matches(int from, int to, byte[] symbol){
+		if (to - from != symbol.length){
+			return false;
+		}
+		for (int i = 0; i < symbol.length; i++){
+			if (buf.get(from + i) != symbol[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// compares with the sequential loader on every bundled puzzle
+	// and times both on a file given as argument
+
+	// both loaders give the same board or the same message
+	private static boolean sameError(String name) throws IOException{
+		String expected, actual;
+		try {
+			expected = PA2.readGame(name).toString();
+		}
+		catch(RuntimeException e) {
+			expected = e.getMessage();
+		}
+		try {
+			actual = load(name, 2).toString();
+		}
+		catch(RuntimeException e) {
+			actual = e.getMessage();
+		}
+		return expected.equals(actual);
+	}
+
+	public static void main(String[] args) throws IOException{
+		boolean same = true;
+		for (int i = 1; i <= 7; i++){
+			String name = "puzzles/puzzle" + i + ".txt";
+			same &= PA2.readGame(name).toString().equals(load(name, 3).toString());
+		}
+		if (same){
+			System.out.println("Yay 1");
+		}
+
+		// same messages, lines and columns as the sequential loader, also for a
+		// bad header
+		File bad = File.createTempFile("loader", ".txt");
+		bad.deleteOnExit();
+		String[] headers = {"3\n3\nrows=1,x,0\ncols=1,1,1\n", "3x\n3\n", "-2\n3\n", "3\n0\n", "3\n3\n\u00e6\n", "# big\n2\n2\n#\n"};
+		String[] cells = {"", "1,1,X\n", "0,1,\u00e6\n", "0,0,O\n1,1,X\n1,2147483648,O\n", "0,0,O\n#\n0,9,X\n", "0,0,O\n1,1,Y\n"};
+		int matching = 0, cases = 0;
+		for (int i = 1; i <= 2; i++){
+			matching += sameError("puzzles/invalid" + i + ".txt") ? 1 : 0;
+			cases++;
+		}
+		for (String header : headers){
+			for (String cell : cells){
+				try (Writer out = new OutputStreamWriter(new FileOutputStream(bad), StandardCharsets.UTF_8)){
+					out.write(header + cell);
+				}
+				matching += sameError(bad.getPath()) ? 1 : 0;
+				cases++;
+			}
+		}
+		if (matching == cases){
+			System.out.println("Yay 2");
+		}
+
+		if (args.length == 1){
+			long start = System.nanoTime();
+			TentTree parallel = load(args[0]);
+			long mid = System.nanoTime();
+			TentTree sequential = PA2.readGame(args[0]);
+			long end = System.nanoTime();
+			System.out.println("parallel " + (mid - start) / 1000000 + " ms, sequential " + (end - mid) / 1000000 + " ms");
+			if (parallel.checkStatus() == sequential.checkStatus()){
+				System.out.println("Yay 3");
+			}
+		}
+	}
+}
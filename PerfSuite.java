@@ -0,0 +1,210 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+// this is an end-to-end performance regression suite
+// a fixed corpus of generated puzzles of increasing size (same seeds every
+// run) goes through the whole pipeline, stage by stage:
+//   load    PA2.loadGame(): parse the file and build the TentTree
+//   build   copy the loaded cells into a new TentTree
+//   check   TentTree.checkStatus()
+//   render  TentTree rendering without the render cache (what toString()
+//           costs after every row changed)
+//   renderCached  TentTree.toString() of an unchanged board: all cache hits
+//   solve   BoardRegions.solve() on a fresh copy (only with --solve)
+// For every board size and stage it records the wall time (median of the
+// repetitions), the throughput in cells per second, the peak heap and the
+// GC time, and writes them to a report of key=value lines
+// (perf.<size>.<stage>.<metric>=<value>). Given a baseline report, every
+// wall time more than the tolerance (and more than the noise floor, in ms)
+// above its baseline is a regression, and the suite exits with status 1.
+// TO RUN: java PerfSuite [--sizes 25,100,400,1000] [--reps N] [--solve]
+//   [--corpus DIR] [--report FILE] [--baseline FILE] [--tolerance 0.25]
+//   [--floor 1.0]
+// The stored baseline is perf-baseline.properties, next to this file: a
+// report of the default run, made with
+//   java PerfSuite --report perf-baseline.properties
+// and compared against with
+//   java PerfSuite --baseline perf-baseline.properties
+// Timings only compare on the same machine and JVM (the report records
+// perf.java), so regenerate it there, and commit it again whenever a change
+// is meant to make a stage faster or slower.
+
+class PerfSuite{
+
+	private static final String[] STAGES = {"load", "build", "check", "render", "renderCached", "solve"};
+	private static final long SEED = 45;
+	private static final double DENSITY = 0.1;
+
+	// keeps the results of the stages alive
+	static volatile Object sink;
+
+	// one measured stage: returns a value that depends on the work done
+	private static abstract class Stage{
+		abstract Object run(TentTree game) throws IOException;
+	}
+
+	private static final List<MemoryPoolMXBean> HEAP = new ArrayList<>();
+	static {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			if (pool.getType() == MemoryType.HEAP){
+				HEAP.add(pool);
+			}
+		}
+	}
+
+	private static long gcMillis(){
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	// sum of the peak usage of all heap pools since the last reset
+	private static long peakHeap(){
+		long total = 0;
+		for (MemoryPoolMXBean pool : HEAP){
+			total += pool.getPeakUsage().getUsed();
+		}
+		return total;
+	}
+
+	private static void resetPeaks(){
+		System.gc();
+		for (MemoryPoolMXBean pool : HEAP){
+			pool.resetPeakUsage();
+		}
+	}
+
+	// run a stage reps times on board, recording its metrics under key
+	private static void measure(Properties report, String key, int reps, long cells, TentTree game, Stage stage)
+		throws IOException{
+		stage.run(game);	// warm up
+		resetPeaks();
+		long gcBefore = gcMillis();
+		long[] times = new long[reps];
+		for (int i = 0; i < reps; i++){
+			long start = System.nanoTime();
+			sink = stage.run(game);
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		double ms = times[reps / 2] / 1e6;
+		report.setProperty(key + ".ms", String.format(Locale.ROOT, "%.3f", ms));
+		report.setProperty(key + ".cellsPerSec", String.format(Locale.ROOT, "%.0f", cells / Math.max(ms, 1e-6) * 1000));
+		report.setProperty(key + ".peakHeapMB", String.format(Locale.ROOT, "%.1f", peakHeap() / 1048576.0));
+		report.setProperty(key + ".gcMs", String.valueOf(gcMillis() - gcBefore));
+	}
+
+	private static TentTree copy(TentTree game){
+		TentTree c = new TentTree(game.numRows(), game.numCols(), game.getTentSymbol(), game.getTreeSymbol());
+		for (Object o : game.getOccupiedCells()){
+			c.set((Position)o, game.get((Position)o));
+		}
+		return c;
+	}
+
+	public static void main(String[] args) throws Exception{
+		int[] sizes = {25, 100, 400, 1000};
+		int reps = 5;
+		boolean solve = false;
+		File corpus = new File(System.getProperty("java.io.tmpdir"), "perf-corpus");
+		String reportFile = "perf-report.properties", baselineFile = null;
+		double tolerance = 0.25, floor = 1.0;
+		for (int i = 0; i < args.length; i++){
+			switch (args[i]){
+				case "--sizes":
+					String[] parts = args[++i].split(",");
+					sizes = new int[parts.length];
+					for (int k = 0; k < parts.length; k++){
+						sizes[k] = Integer.parseInt(parts[k]);
+					}
+					break;
+				case "--reps": reps = Integer.parseInt(args[++i]); break;
+				case "--solve": solve = true; break;
+				case "--corpus": corpus = new File(args[++i]); break;
+				case "--report": reportFile = args[++i]; break;
+				case "--baseline": baselineFile = args[++i]; break;
+				case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+				case "--floor": floor = Double.parseDouble(args[++i]); break;
+				default:
+					System.out.println("Run the file as: java PerfSuite [--sizes 25,100,400,1000] [--reps N] [--solve]"
+						+ " [--corpus DIR] [--report FILE] [--baseline FILE] [--tolerance 0.25] [--floor 1.0]");
+					return;
+			}
+		}
+
+		Properties report = new Properties();
+		report.setProperty("perf.java", System.getProperty("java.version"));
+		report.setProperty("perf.cores", String.valueOf(Runtime.getRuntime().availableProcessors()));
+		System.out.println(String.format("%-6s %-12s %10s %14s %10s %6s", "size", "stage", "ms", "cells/s", "heap MB", "gc ms"));
+		for (int side : sizes){
+			// the same puzzle every run: fixed seed, regenerated only if missing
+			final File file = new File(corpus, side + "x" + side + "-" + SEED + ".txt");
+			if (!file.exists()){
+				corpus.mkdirs();
+				new PuzzleGenerator(side, side, SEED, DENSITY).write(file, false, false);
+			}
+			final TentTree game = PA2.loadGame(file.getPath());
+			long cells = (long)side * side;
+			Stage[] stages = {
+				new Stage(){ Object run(TentTree g) throws IOException{ return PA2.loadGame(file.getPath());}},
+				new Stage(){ Object run(TentTree g){ return copy(g);}},
+				new Stage(){ Object run(TentTree g){ return g.checkStatus();}},
+				new Stage(){ Object run(TentTree g){ return g.renderUncached();}},
+				new Stage(){ Object run(TentTree g){ return g.toString();}},
+				new Stage(){ Object run(TentTree g){
+					TentTree c = copy(g);
+					BoardRegions regions = new BoardRegions(c);
+					int result = regions.solve(10000000L);
+					regions.close();
+					if (result != 1){
+						throw new RuntimeException("puzzle " + file + " not solved!");
+					}
+					return c;
+				}}
+			};
+			for (int s = 0; s < stages.length; s++){
+				if (STAGES[s].equals("solve") && !solve){
+					continue;
+				}
+				String key = "perf." + side + "." + STAGES[s];
+				measure(report, key, reps, cells, game, stages[s]);
+				System.out.println(String.format("%-6d %-12s %10s %14s %10s %6s", side, STAGES[s], report.getProperty(key + ".ms"),
+					report.getProperty(key + ".cellsPerSec"), report.getProperty(key + ".peakHeapMB"), report.getProperty(key + ".gcMs")));
+			}
+		}
+
+		try (Writer out = new FileWriter(reportFile)){
+			report.store(out, "PerfSuite report");
+		}
+		System.out.println("report written to " + reportFile);
+
+		if (baselineFile != null){
+			Properties baseline = new Properties();
+			try (Reader in = new FileReader(baselineFile)){
+				baseline.load(in);
+			}
+			int regressions = 0, compared = 0;
+			for (String key : new TreeSet<>(baseline.stringPropertyNames())){
+				String now = report.getProperty(key);
+				if (!key.endsWith(".ms") || now == null){
+					continue;
+				}
+				compared++;
+				double before = Double.parseDouble(baseline.getProperty(key)), after = Double.parseDouble(now);
+				if (after > before * (1 + tolerance) && after - before > floor){
+					regressions++;
+					System.out.println(String.format(Locale.ROOT, "REGRESSION %s: %.3f ms, baseline %.3f ms (+%.0f%%)", key, after, before,
+						100 * (after / before - 1)));
+				}
+			}
+			System.out.println(compared + " timings compared with " + baselineFile + " (tolerance " + Math.round(100 * tolerance)
+				+ "%), " + regressions + " regression(s)");
+			if (regressions > 0){
+				System.exit(1);
+			}
+		}
+	}
+}
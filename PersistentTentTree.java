@@ -0,0 +1,349 @@
+/**
+ * This class is an immutable version of the tent-tree board. A board is never
+ * changed in place: withTent(), withoutTent() and withTree() return a new board
+ * and leave the old one as it was, so solvers and hint features can fork a board
+ * as many times as they like without copying it.
+ *
+ * Cells are stored in a bitmap-compressed 32-way trie keyed by row*numCols+col.
+ * Only occupied cells have storage, and a new version copies just the O(log32 n)
+ * nodes on the path to the changed cell; every other node is shared with the
+ * version it came from.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class PersistentTentTree{
+
+	private static final int BITS = 5;	// 32 children per node
+	private static final int MASK = (1 << BITS) - 1;
+
+	// one trie node: bit i of bitmap is set if child i exists, and the
+	// existing children are packed in slots in index order.
+	// slots hold Nodes on inner levels and symbols on the last level
+	private static final class Node{
+		final int bitmap;
+		final Object[] slots;
+
+		Node(int bitmap, Object[] slots){
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+	}
+
+	private static final Node EMPTY = new Node(0, new Object[0]);
+
+	private final int numRows, numCols;	// size of the 2D board
+	private final String treeSymbol, tentSymbol;
+	private final int topShift;	// shift of the root level
+	private final Node root;
+	private final int size;	// number of occupied cells
+
+	/**
+	 * Constructor of an empty board.
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @param tent String of tent
+	 * @param tree String of tree
+	 */
+	public PersistentTentTree(int numRows, int numCols, String tent, String tree){
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.tentSymbol = tent;
+		this.treeSymbol = tree;
+		long cells = Math.max(1L, (long)numRows * (long)numCols);
+		int shift = 0;
+		while ((cells - 1) >>> (shift + BITS) != 0){
+			shift += BITS;
+		}
+		this.topShift = shift;
+		this.root = EMPTY;
+		this.size = 0;
+	}
+
+	/**
+	 * Constructor of an empty board with "X" for tent and "O" for tree.
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 */
+	public PersistentTentTree(int numRows, int numCols){
+		this(numRows, numCols, "X", "O");
+	}
+
+	// a new version of prev with a different root
+	private PersistentTentTree(PersistentTentTree prev, Node root, int size){
+		this.numRows = prev.numRows;
+		this.numCols = prev.numCols;
+		this.tentSymbol = prev.tentSymbol;
+		this.treeSymbol = prev.treeSymbol;
+		this.topShift = prev.topShift;
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Build an immutable snapshot of a board.
+	 * O(R+M*log M) where R is the number of rows and M the number of occupied cells
+	 * @param board board to copy
+	 * @return snapshot
+	 */
+	public static PersistentTentTree of(TentTree board){
+		PersistentTentTree snapshot = new PersistentTentTree(board.numRows(), board.numCols(),
+			board.getTentSymbol(), board.getTreeSymbol());
+		for (Position pos : board.getOccupiedCellsInOrder()){
+			snapshot = snapshot.with(pos, board.get(pos));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Get tent symbol method
+	 * @return symbol of tent
+	 */
+	public String getTentSymbol(){ return this.tentSymbol;}
+
+	/**
+	 * Get tree symbol method
+	 * @return symbol of tree
+	 */
+	public String getTreeSymbol(){ return this.treeSymbol;}
+
+	/**
+	 * Get row num method
+	 * @return row num
+	 */
+	public int numRows(){ return this.numRows;}
+
+	/**
+	 * Get col num method
+	 * @return col num
+	 */
+	public int numCols(){ return this.numCols;}
+
+	/**
+	 * Get number of occupied cells
+	 * @return size
+	 */
+	public int size(){ return this.size;}
+
+	/**
+	 * Check position is valid or not
+	 * @param pos postion
+	 * @return boolean
+	 */
+	public boolean isValidPosition(Position pos){
+		return pos.getRow() >= 0 && pos.getRow() < numRows && pos.getCol() >= 0 && pos.getCol() < numCols;
+	}
+
+	/**
+	 * Get method
+	 * @param pos position
+	 * @return symbol, or null for empty cells and invalid positions
+	 */
+	public String get(Position pos){
+		// O(log n)
+		if (!isValidPosition(pos)){
+			return null;
+		}
+		long key = key(pos);
+		Node node = root;
+		for (int shift = topShift; ; shift -= BITS){
+			int bit = 1 << ((int)(key >>> shift) & MASK);
+			if ((node.bitmap & bit) == 0){
+				return null;
+			}
+			Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+			if (shift == 0){
+				return (String)slot;
+			}
+			node = (Node)slot;
+		}
+	}
+
+	/**
+	 * Check has tent or not
+	 * @param pos position
+	 * @return boolean
+	 */
+	public boolean hasTent(Position pos){
+		return tentSymbol.equals(get(pos));
+	}
+
+	/**
+	 * Board with one more tent.
+	 * @param pos position
+	 * @return new board, or this board if pos is invalid or occupied
+	 */
+	public PersistentTentTree withTent(Position pos){
+		// O(log n)
+		return with(pos, tentSymbol);
+	}
+
+	/**
+	 * Board with one more tree.
+	 * @param pos position
+	 * @return new board, or this board if pos is invalid or occupied
+	 */
+	public PersistentTentTree withTree(Position pos){
+		// O(log n)
+		return with(pos, treeSymbol);
+	}
+
+	/**
+	 * Board with the tent at pos removed.
+	 * @param pos position
+	 * @return new board, or this board if there is no tent at pos
+	 */
+	public PersistentTentTree withoutTent(Position pos){
+		// O(log n)
+		if (!hasTent(pos)){
+			return this;
+		}
+		Node newRoot = without(root, topShift, key(pos));
+		return new PersistentTentTree(this, newRoot == null ? EMPTY : newRoot, size - 1);
+	}
+
+	/**
+	 * Copy this board into a new mutable TentTree.
+	 * O(R*C)
+	 * @return board
+	 */
+	public TentTree toTentTree(){
+		TentTree board = new TentTree(numRows, numCols, tentSymbol, treeSymbol);
+		for (int i = 0; i < numRows; i++){
+			for (int j = 0; j < numCols; j++){
+				Position pos = new Position(i, j);
+				String s = get(pos);
+				if (s != null){
+					board.set(pos, s);
+				}
+			}
+		}
+		return board;
+	}
+
+	/***
+	 * methods that return a string of the board representation
+	 * same layout as TentTree.toString()
+	 * @return a string
+	 */
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder("");
+		for (int i=0; i<numRows; i++){
+			for (int j =0; j<numCols; j++){
+				String s = get(new Position(i, j));
+				sb.append(String.format("%5s ", s == null ? "-" : s));
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	private PersistentTentTree with(Position pos, String s){
+		if (!isValidPosition(pos) || get(pos) != null){
+			return this;
+		}
+		return new PersistentTentTree(this, with(root, topShift, key(pos), s), size + 1);
+	}
+
+	private long key(Position pos){
+		return (long)pos.getRow() * numCols + pos.getCol();
+	}
+
+	// copy of node with s stored under key; the cell is known to be empty
+	private static Node with(Node node, int shift, long key, String s){
+		int bit = 1 << ((int)(key >>> shift) & MASK);
+		int at = Integer.bitCount(node.bitmap & (bit - 1));
+		Object child;
+		if (shift == 0){
+			child = s;
+		}
+		else if ((node.bitmap & bit) == 0){
+			child = with(EMPTY, shift - BITS, key, s);
+		}
+		else {
+			child = with((Node)node.slots[at], shift - BITS, key, s);
+		}
+
+		if ((node.bitmap & bit) != 0){
+			Object[] slots = node.slots.clone();
+			slots[at] = child;
+			return new Node(node.bitmap, slots);
+		}
+		Object[] slots = new Object[node.slots.length + 1];
+		System.arraycopy(node.slots, 0, slots, 0, at);
+		slots[at] = child;
+		System.arraycopy(node.slots, at, slots, at + 1, node.slots.length - at);
+		return new Node(node.bitmap | bit, slots);
+	}
+
+	// copy of node with key removed, or null if the node becomes empty;
+	// the cell is known to be occupied
+	private static Node without(Node node, int shift, long key){
+		int bit = 1 << ((int)(key >>> shift) & MASK);
+		int at = Integer.bitCount(node.bitmap & (bit - 1));
+		if (shift != 0){
+			Node child = without((Node)node.slots[at], shift - BITS, key);
+			if (child != null){
+				Object[] slots = node.slots.clone();
+				slots[at] = child;
+				return new Node(node.bitmap, slots);
+			}
+		}
+		if (node.slots.length == 1){
+			return null;
+		}
+		Object[] slots = new Object[node.slots.length - 1];
+		System.arraycopy(node.slots, 0, slots, 0, at);
+		System.arraycopy(node.slots, at + 1, slots, at, slots.length - at);
+		return new Node(node.bitmap & ~bit, slots);
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+
+	public static void main(String[] args){
+		PersistentTentTree g0 = new PersistentTentTree(3,3).withTree(new Position(1,0)).withTree(new Position(1,2));
+		PersistentTentTree g1 = g0.withTent(new Position(0,0));
+		PersistentTentTree g2 = g1.withTent(new Position(2,2));
+
+		if (g0.size()==2 && g1.size()==3 && g2.size()==4 && g1.hasTent(new Position(0,0)) && !g0.hasTent(new Position(0,0))){
+			System.out.println("Yay 1");
+		}
+
+		PersistentTentTree g3 = g2.withoutTent(new Position(0,0));
+		if (g3.size()==3 && !g3.hasTent(new Position(0,0)) && g2.hasTent(new Position(0,0))
+			&& g3.withoutTent(new Position(1,0)) == g3 && g3.withTent(new Position(1,2)) == g3
+			&& g3.withTent(new Position(3,3)) == g3 && g3.get(new Position(1,2)).equals("O")){
+			System.out.println("Yay 2");
+		}
+
+		TentTree t = new TentTree(3,3);
+		t.addTree(new Position(1,0));
+		t.addTree(new Position(1,2));
+		t.addTent(new Position(0,0));
+		if (PersistentTentTree.of(t).toString().equals(g1.toString()) && g1.toTentTree().toString().equals(t.toString())){
+			System.out.println("Yay 3");
+		}
+
+		// many forks of one big board share almost all of their nodes
+		int n = 1000;
+		PersistentTentTree big = new PersistentTentTree(n, n);
+		for (int i = 0; i < n; i += 2){
+			for (int j = 0; j < n; j += 2){
+				big = big.withTree(new Position(i, j));
+			}
+		}
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		long before = rt.totalMemory() - rt.freeMemory();
+		PersistentTentTree[] forks = new PersistentTentTree[10000];
+		for (int k = 0; k < forks.length; k++){
+			forks[k] = big.withTent(new Position((k / n) * 2 + 1, k % n));
+		}
+		System.gc();
+		long after = rt.totalMemory() - rt.freeMemory();
+		System.out.println(forks.length + " forks of a board with " + big.size() + " cells: about "
+			+ Math.max(0, (after - before) / forks.length) + " bytes per fork");
+	}
+}
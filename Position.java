@@ -82,7 +82,10 @@ class Position{
 		// must follow hash contract and distribute well
 		// If x and y are equal, must have same hash code.
 
-		return Integer.valueOf(Integer.toString(row) + Integer.toString(col));
+		// concatenating the digits collides (<1,11> and <11,1>) and overflows
+		// for large boards; row in the high bits and col in the low bits keeps
+		// every position distinct as long as col < 65536
+		return (row << 16) ^ col;
 	}
 
 	
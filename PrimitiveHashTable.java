@@ -0,0 +1,264 @@
+/**
+ * This class is the chain bookkeeping shared by the primitive hash sets and maps
+ * (IntHashSet, LongHashSet, IntObjectMap, LongObjectMap). It uses separate chaining
+ * like HashTable, but the chains are threaded through int arrays instead of
+ * SimpleList nodes: heads[b] is the first entry of bucket b and next[e] the entry
+ * after e (-1 ends a chain). The subclasses keep the keys (and values) of entry e
+ * at index e of their own primitive arrays, so a lookup compares primitives
+ * without boxing or equals() calls.
+ *
+ * Growth and metrics follow HashTable: 11 buckets at first, a rehash to the next
+ * prime above twice the capacity once the average chain length is over 1.2, and
+ * the same size(), getLoad(), getAvgChainLength(), capacity() and
+ * chainLengthCounts(). Removed entries are put on a free list and reused.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+abstract class PrimitiveHashTable{
+
+	private int[] heads;	// first entry per bucket, -1 if empty
+	private int[] next = new int[8];	// next entry in the same chain, or the next free entry
+	private int used = 0;	// entries ever handed out
+	private int free = -1;	// first free entry
+	private int itemCount = 0;
+	private int numOfChains = 0;
+
+	// applied to the key's hash before the bucket is picked
+	private final HashStrategy strategy;
+
+	/**
+	 * Constructor
+	 * @param strategy hashing strategy applied before bucket selection
+	 */
+	protected PrimitiveHashTable(HashStrategy strategy){
+		this.strategy = strategy;
+		heads = new int[11];
+		java.util.Arrays.fill(heads, -1);
+	}
+
+	/**
+	 * Get the hash of the key stored in an entry, as used to pick its bucket
+	 * @param entry entry
+	 * @return hash
+	 */
+	protected abstract int hashAt(int entry);
+
+	/**
+	 * Make room for entries 0 .. length-1 in the key (and value) arrays
+	 * @param length new entry capacity
+	 */
+	protected abstract void growEntries(int length);
+
+	/**
+	 * Forget the value of a removed entry, so it can be collected
+	 * @param entry entry
+	 */
+	protected void clearEntry(int entry){
+	}
+
+	// bucket of a hash, by the same rule as HashTable
+	protected final int bucketOf(int hash){
+		return HashTable.bucketIndex(strategy, hash, heads.length);
+	}
+
+	/**
+	 * Get first entry of a bucket
+	 * @param bucket bucket
+	 * @return entry, -1 if the bucket is empty
+	 */
+	protected final int head(int bucket){
+		return heads[bucket];
+	}
+
+	/**
+	 * Get the entry after an entry in its chain
+	 * @param entry entry
+	 * @return entry, -1 at the end of the chain
+	 */
+	protected final int next(int entry){
+		return next[entry];
+	}
+
+	/**
+	 * Take a free entry and put it at the front of a bucket; the caller stores the
+	 * key at the returned index and then calls grow()
+	 * @param bucket bucket
+	 * @return entry
+	 */
+	protected final int newEntry(int bucket){
+		int entry;
+		if (free >= 0){
+			entry = free;
+			free = next[entry];
+		}
+		else {
+			if (used == next.length){
+				int length = next.length * 2;
+				next = java.util.Arrays.copyOf(next, length);
+				growEntries(length);
+			}
+			entry = used++;
+		}
+		if (heads[bucket] < 0){
+			numOfChains++;
+		}
+		next[entry] = heads[bucket];
+		heads[bucket] = entry;
+		itemCount++;
+		return entry;
+	}
+
+	/**
+	 * Rehash if the average chain length is over 1.2, as HashTable.add() does
+	 */
+	protected final void grow(){
+		if (getAvgChainLength() > 1.2){
+			rehash(nextPrime(heads.length * 2));
+		}
+	}
+
+	/**
+	 * Unlink an entry from its bucket and put it on the free list
+	 * @param bucket bucket
+	 * @param prev entry before it in the chain, -1 if it is the first
+	 * @param entry entry
+	 */
+	protected final void removeEntry(int bucket, int prev, int entry){
+		if (prev < 0){
+			heads[bucket] = next[entry];
+			if (heads[bucket] < 0){
+				numOfChains--;
+			}
+		}
+		else {
+			next[prev] = next[entry];
+		}
+		clearEntry(entry);
+		next[entry] = free;
+		free = entry;
+		itemCount--;
+	}
+
+	/**
+	 * Rehash method, same rules as HashTable.rehash()
+	 * @param newCapacity size
+	 * @return boolean
+	 */
+	public boolean rehash(int newCapacity){
+		// O(M) where M = size returned by size()
+		if (newCapacity < 2 || (double)itemCount / (double)newCapacity > 0.7){
+			return false;
+		}
+		int[] old = heads;
+		heads = new int[newCapacity];
+		java.util.Arrays.fill(heads, -1);
+		numOfChains = 0;
+		for (int b = 0; b < old.length; b++){
+			int entry = old[b];
+			while (entry >= 0){
+				int after = next[entry];
+				int bucket = bucketOf(hashAt(entry));
+				if (heads[bucket] < 0){
+					numOfChains++;
+				}
+				next[entry] = heads[bucket];
+				heads[bucket] = entry;
+				entry = after;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get size method
+	 * @return size
+	 */
+	public int size(){
+		// O(1)
+		return itemCount;
+	}
+
+	/**
+	 * Get load method.
+	 * @return load
+	 */
+	public double getLoad(){
+		// O(1)
+		return (double)itemCount / (double)heads.length;
+	}
+
+	/**
+	 * Get Average Chain Length
+	 * @return Average Chain Length
+	 */
+	public double getAvgChainLength(){
+		// O(1)
+		return (double)itemCount / (double)numOfChains;
+	}
+
+	/**
+	 * Get the number of buckets
+	 * @return capacity
+	 */
+	public int capacity(){
+		// O(1)
+		return heads.length;
+	}
+
+	/**
+	 * Get the chain length distribution, as HashTable.chainLengthCounts()
+	 * @return chain length counts
+	 */
+	public int[] chainLengthCounts(){
+		// O(N) where N is the table length
+		int[] lengths = new int[heads.length];
+		int longest = 0;
+		for (int b = 0; b < heads.length; b++){
+			for (int entry = heads[b]; entry >= 0; entry = next[entry]){
+				lengths[b]++;
+			}
+			longest = Math.max(longest, lengths[b]);
+		}
+		int[] counts = new int[longest + 1];
+		for (int len : lengths){
+			counts[len]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Get every live entry, in bucket order
+	 * @return entries
+	 */
+	protected final int[] entries(){
+		// O(N + M)
+		int[] result = new int[itemCount];
+		int num = 0;
+		for (int b = 0; b < heads.length; b++){
+			for (int entry = heads[b]; entry >= 0; entry = next[entry]){
+				result[num++] = entry;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * inefficiently finds the next prime number >= x
+	 * @param x size
+	 * @return new size
+	 */
+	public int nextPrime(int x){
+		while(true) {
+			boolean isPrime = true;
+			for(int i = 2; i <= Math.sqrt(x); i++) {
+				if(x % i == 0) {
+					isPrime = false;
+					break;
+				}
+			}
+			if(isPrime) return x;
+			x++;
+		}
+	}
+}
@@ -0,0 +1,476 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// this is a generator of random tent-tree puzzles for load testing
+// every board is built by placing tent/tree pairs under the game rules
+// (no two tents touch, every tent has its own tree as a 4-way neighbor),
+// so each generated puzzle has at least one solution
+// files use the same format as the files under puzzles/
+// TO RUN: java PuzzleGenerator OUT_DIR COUNT ROWS COLS [SEED] [options]
+//   --density D   fraction of cells that hold a tree (default 0.1)
+//   --unique      only keep boards with exactly one solution; needs --clues,
+//                 since without row/column counts almost every board has
+//                 many. A puzzle whose seeds all fail is skipped and reported
+//   --solution    also write the tents, i.e. a solved board
+//   --clues       also write the tent count of every row and column, which
+//                 --unique then takes into account
+// Without arguments it runs its self-checks.
+// For example, java PuzzleGenerator corpus 1000 12 12 310 --clues --unique
+//              java PuzzleGenerator corpus 1000 8 8 310 --density 0.3
+//              java PuzzleGenerator big 1 10000 10000
+
+class PuzzleGenerator{
+
+	// 4-way neighbors, then the diagonals to make 8-way
+	private static final int[] DR = {-1, 1, 0, 0, -1, -1, 1, 1};
+	private static final int[] DC = {0, 0, -1, 1, -1, 1, -1, 1};
+
+	// seeds tried per puzzle before giving up on a unique one
+	private static final int MAX_UNIQUE_TRIES = 1000;
+
+	private final int numRows, numCols;
+	private final long seed;
+	private final byte[] cells;	// row-major
+	private int numTrees = 0;
+
+	/**
+	 * Constructor, generates the board right away.
+	 * The same size, seed and density always give the same board.
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @param seed random seed
+	 * @param density fraction of cells that should hold a tree, at most about 0.2
+	 */
+	public PuzzleGenerator(int numRows, int numCols, long seed, double density){
+		if (numRows <= 0 || numCols <= 0 || (long)numRows * numCols > Integer.MAX_VALUE){
+			throw new RuntimeException("invalid board size!");
+		}
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.seed = seed;
+		this.cells = new byte[numRows * numCols];
+		generate(new SplittableRandom(seed), density);
+	}
+
+	private void generate(SplittableRandom rand, double density){
+		long target = (long)(density * cells.length);
+		long attempts = target * 3;
+		for (long a = 0; a < attempts && numTrees < target; a++){
+			int r = rand.nextInt(numRows);
+			int c = rand.nextInt(numCols);
+			if (cells[r * numCols + c] != CellCode.EMPTY || touchesTent(cells, r, c)){
+				continue;
+			}
+			// put the tree on the first empty 4-way neighbor, starting at a random side
+			int first = rand.nextInt(4);
+			for (int k = 0; k < 4; k++){
+				int d = (first + k) & 3;
+				int tr = r + DR[d], tc = c + DC[d];
+				if (inBounds(tr, tc) && cells[tr * numCols + tc] == CellCode.EMPTY){
+					cells[r * numCols + c] = CellCode.TENT;
+					cells[tr * numCols + tc] = CellCode.TREE;
+					numTrees++;
+					break;
+				}
+			}
+		}
+	}
+
+	private boolean inBounds(int r, int c){
+		return r >= 0 && r < numRows && c >= 0 && c < numCols;
+	}
+
+	// true if one of the 8 neighbors of <r,c> is a tent
+	private boolean touchesTent(byte[] board, int r, int c){
+		for (int d = 0; d < 8; d++){
+			int nr = r + DR[d], nc = c + DC[d];
+			if (inBounds(nr, nc) && board[nr * numCols + nc] == CellCode.TENT){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get row num method
+	 * @return row num
+	 */
+	public int numRows(){ return numRows;}
+
+	/**
+	 * Get col num method
+	 * @return col num
+	 */
+	public int numCols(){ return numCols;}
+
+	/**
+	 * Get number of trees (and tents) on the board
+	 * @return number of trees
+	 */
+	public int numTrees(){ return numTrees;}
+
+	/**
+	 * Get the cell code at a position
+	 * @param row row
+	 * @param col col
+	 * @return EMPTY, TENT or TREE
+	 */
+	public byte cell(int row, int col){ return cells[row * numCols + col];}
+
+	/**
+	 * Get the tent count of every row of the generated solution
+	 * @return row clues
+	 */
+	public int[] rowClues(){
+		int[] clues = new int[numRows];
+		for (int i = 0; i < cells.length; i++){
+			if (cells[i] == CellCode.TENT){
+				clues[i / numCols]++;
+			}
+		}
+		return clues;
+	}
+
+	/**
+	 * Get the tent count of every column of the generated solution
+	 * @return column clues
+	 */
+	public int[] colClues(){
+		int[] clues = new int[numCols];
+		for (int i = 0; i < cells.length; i++){
+			if (cells[i] == CellCode.TENT){
+				clues[i % numCols]++;
+			}
+		}
+		return clues;
+	}
+
+	/**
+	 * Count the distinct solutions of the puzzle (trees only), stopping at limit.
+	 * Plain backtracking: every tree in turn picks a free 4-way neighbor for its
+	 * tent that touches no other tent (and, with useClues, does not push its row
+	 * or column over the clue). Only meant for small boards, so the search gives
+	 * up after maxSteps placements.
+	 * @param limit stop after this many distinct solutions
+	 * @param maxSteps search budget
+	 * @param useClues respect the row/column tent counts of rowClues()/colClues()
+	 * @return number of solutions found (at most limit), or -1 if out of budget
+	 */
+	public int countSolutions(int limit, long maxSteps, boolean useClues){
+		// without clues no row or column can ever be full
+		int[] rowRoom = new int[numRows], colRoom = new int[numCols];
+		Arrays.fill(rowRoom, Integer.MAX_VALUE);
+		Arrays.fill(colRoom, Integer.MAX_VALUE);
+		if (useClues){
+			rowRoom = rowClues();
+			colRoom = colClues();
+		}
+
+		int[] trees = new int[numTrees];
+		byte[] board = new byte[cells.length];
+		int n = 0;
+		for (int i = 0; i < cells.length; i++){
+			if (cells[i] == CellCode.TREE){
+				trees[n++] = i;
+				board[i] = CellCode.TREE;
+			}
+		}
+		if (n == 0){
+			return 1;
+		}
+
+		List<int[]> found = new ArrayList<>();
+		int[] choice = new int[n];	// next direction to try for each tree
+		int[] placed = new int[n];	// cell of the tent of each tree
+		int i = 0;
+		long steps = 0;
+		while (i >= 0){
+			if (++steps > maxSteps){
+				return -1;
+			}
+			if (i == n){
+				// the same tents can be matched to the trees in more than one way,
+				// so only count tent sets that were not seen before
+				int[] tents = placed.clone();
+				Arrays.sort(tents);
+				boolean seen = false;
+				for (int[] other : found){
+					seen |= Arrays.equals(other, tents);
+				}
+				if (!seen){
+					found.add(tents);
+					if (found.size() >= limit){
+						break;
+					}
+				}
+				i--;
+				unplace(board, placed[i], rowRoom, colRoom);
+				continue;
+			}
+
+			boolean advanced = false;
+			int r = trees[i] / numCols, c = trees[i] % numCols;
+			while (!advanced && choice[i] < 4){
+				int d = choice[i]++;
+				int tr = r + DR[d], tc = c + DC[d];
+				if (inBounds(tr, tc) && board[tr * numCols + tc] == CellCode.EMPTY && rowRoom[tr] > 0 && colRoom[tc] > 0
+					&& !touchesTent(board, tr, tc)){
+					board[tr * numCols + tc] = CellCode.TENT;
+					rowRoom[tr]--;
+					colRoom[tc]--;
+					placed[i] = tr * numCols + tc;
+					i++;
+					if (i < n){
+						choice[i] = 0;
+					}
+					advanced = true;
+				}
+			}
+			if (!advanced){
+				i--;
+				if (i >= 0){
+					unplace(board, placed[i], rowRoom, colRoom);
+				}
+			}
+		}
+		return found.size();
+	}
+
+	private void unplace(byte[] board, int cell, int[] rowRoom, int[] colRoom){
+		board[cell] = CellCode.EMPTY;
+		rowRoom[cell / numCols]++;
+		colRoom[cell % numCols]++;
+	}
+
+	/**
+	 * Write the puzzle in the "row,col,symbol" file format
+	 * @param out where to write
+	 * @param withTents also write the tents of the generated solution
+	 * @throws IOException if writing fails
+	 */
+	public void write(Writer out, boolean withTents) throws IOException{
+		write(out, withTents, false);
+	}
+
+	/**
+	 * Write the puzzle in the "row,col,symbol" file format
+	 * @param out where to write
+	 * @param withTents also write the tents of the generated solution
+	 * @param withClues also write the row/column tent counts
+	 * @throws IOException if writing fails
+	 */
+	public void write(Writer out, boolean withTents, boolean withClues) throws IOException{
+		out.write("# generated puzzle, seed " + seed + ", " + numTrees + " trees\n");
+		out.write("# row\n" + numRows + "\n");
+		out.write("# column\n" + numCols + "\n");
+		if (withClues){
+			out.write("rows=" + joinCounts(rowClues()) + "\n");
+			out.write("cols=" + joinCounts(colClues()) + "\n");
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < numRows; r++){
+			for (int c = 0; c < numCols; c++){
+				byte code = cells[r * numCols + c];
+				if (code == CellCode.TREE || (withTents && code == CellCode.TENT)){
+					sb.append(r).append(',').append(c).append(',').append(code == CellCode.TREE ? 'O' : 'X').append('\n');
+				}
+			}
+			if (sb.length() > 1 << 16){
+				out.write(sb.toString());
+				sb.setLength(0);
+			}
+		}
+		out.write(sb.toString());
+	}
+
+	private static String joinCounts(int[] counts){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < counts.length; i++){
+			sb.append(i == 0 ? "" : ",").append(counts[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write the puzzle into a file
+	 * @param file file to write
+	 * @param withTents also write the tents of the generated solution
+	 * @param withClues also write the row/column tent counts
+	 * @throws IOException if writing fails
+	 */
+	public void write(File file, boolean withTents, boolean withClues) throws IOException{
+		try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)){
+			write(out, withTents, withClues);
+		}
+	}
+
+	/**
+	 * Build a TentTree of the puzzle
+	 * @param withTents also set the tents of the generated solution
+	 * @return board
+	 */
+	public TentTree toTentTree(boolean withTents){
+		TentTree game = new TentTree(numRows, numCols);
+		for (int r = 0; r < numRows; r++){
+			for (int c = 0; c < numCols; c++){
+				byte code = cells[r * numCols + c];
+				if (code == CellCode.TREE){
+					game.addTree(new Position(r, c));
+				}
+				else if (withTents && code == CellCode.TENT){
+					game.addTent(new Position(r, c));
+				}
+			}
+		}
+		return game;
+	}
+
+	/**
+	 * Generate count puzzles in parallel into dir, as puzzle-SEED.txt.
+	 * With unique set, seeds whose board has more than one solution (or could
+	 * not be decided within the search budget) are skipped and the next seed
+	 * is tried; a puzzle for which no seed works is left out and reported on
+	 * System.err, so fewer than count files may be written.
+	 * @param dir output directory
+	 * @param count number of puzzles
+	 * @param numRows num of rows
+	 * @param numCols num of cols
+	 * @param firstSeed seed of the first puzzle
+	 * @param density fraction of cells that hold a tree
+	 * @param unique only keep puzzles with exactly one solution
+	 * @param withTents also write the tents
+	 * @param withClues also write the row/column tent counts
+	 * @return files written, in seed order
+	 * @throws Exception if generating or writing fails
+	 */
+	public static List<File> generateCorpus(File dir, int count, final int numRows, final int numCols, long firstSeed,
+		final double density, final boolean unique, final boolean withTents, final boolean withClues) throws Exception{
+		if (!dir.isDirectory() && !dir.mkdirs()){
+			throw new IOException("cannot create " + dir);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			List<Future<File>> jobs = new ArrayList<>();
+			for (int k = 0; k < count; k++){
+				// far apart seeds, so retries of one job never reuse another job's seed
+				final long seed = firstSeed + (long)k * 1000003L;
+				final File target = dir;
+				jobs.add(pool.submit(new Callable<File>(){
+					public File call() throws IOException{
+						for (long s = seed; s < seed + MAX_UNIQUE_TRIES; s++){
+							PuzzleGenerator g = new PuzzleGenerator(numRows, numCols, s, density);
+							if (!unique || g.countSolutions(2, 10000000L, withClues) == 1){
+								File f = new File(target, "puzzle-" + s + ".txt");
+								g.write(f, withTents, withClues);
+								return f;
+							}
+						}
+						System.err.println("no puzzle with a unique solution near seed " + seed + ", skipped");
+						return null;
+					}
+				}));
+			}
+			List<File> files = new ArrayList<>();
+			for (Future<File> job : jobs){
+				File f = job.get();
+				if (f != null){
+					files.add(f);
+				}
+			}
+			return files;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	// self-checks, run without arguments
+	private static void selfCheck() throws Exception{
+		// every generated board is solved by its own tents, and a seed always
+		// gives the same board
+		boolean valid = true;
+		for (long seed = 1; seed <= 20; seed++){
+			PuzzleGenerator g = new PuzzleGenerator(10, 12, seed, 0.2);
+			valid &= g.toTentTree(true).checkStatus() == 1 && g.countSolutions(1, 1000000L, true) == 1
+				&& g.toTentTree(true).zobristHash() == new PuzzleGenerator(10, 12, seed, 0.2).toTentTree(true).zobristHash();
+		}
+		if (valid){
+			System.out.println("Yay 1");
+		}
+
+		// the file reads back as the same board with the same clues
+		PuzzleGenerator g = new PuzzleGenerator(9, 7, 45, 0.3);
+		File file = File.createTempFile("generator", ".txt");
+		file.deleteOnExit();
+		g.write(file, false, true);
+		TentTree game = PA2.readGame(file.getPath());
+		if (game.zobristHash() == g.toTentTree(false).zobristHash() && game.rowClue(8) == g.rowClues()[8]
+			&& game.colClue(6) == g.colClues()[6] && game.checkStatus() == 2){
+			System.out.println("Yay 2");
+		}
+
+		// a corpus of unique puzzles; a puzzle with no unique seed is skipped,
+		// not fatal for the rest
+		File dir = new File(System.getProperty("java.io.tmpdir"), "generator-" + System.nanoTime());
+		List<File> files = generateCorpus(dir, 3, 8, 8, 310, 0.2, true, false, true);
+		boolean unique = files.size() == 3;
+		for (File f : files){
+			long seed = Long.parseLong(f.getName().replaceAll("\\D", ""));
+			unique &= new PuzzleGenerator(8, 8, seed, 0.2).countSolutions(2, 10000000L, true) == 1 && PA2.readGame(f.getPath()).hasClues();
+			f.delete();
+		}
+		// (one tree on a 2 x 2 board always has two places for its tent)
+		List<File> none = generateCorpus(dir, 2, 2, 2, 310, 0.5, true, false, false);
+		dir.delete();
+		if (unique && none.isEmpty()){
+			System.out.println("Yay 3");
+		}
+	}
+
+	public static void main(String[] args) throws Exception{
+		if (args.length == 0){
+			selfCheck();
+			return;
+		}
+		List<String> positional = new ArrayList<>();
+		double density = 0.1;
+		boolean unique = false, withTents = false, withClues = false;
+		for (int i = 0; i < args.length; i++){
+			if (args[i].equals("--density") && i + 1 < args.length){
+				density = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("--unique")){
+				unique = true;
+			}
+			else if (args[i].equals("--solution")){
+				withTents = true;
+			}
+			else if (args[i].equals("--clues")){
+				withClues = true;
+			}
+			else {
+				positional.add(args[i]);
+			}
+		}
+		if (unique && !withClues){
+			System.out.println("--unique needs --clues: without row/column counts almost no board has a unique solution");
+			return;
+		}
+		if (positional.size() < 4 || positional.size() > 5){
+			System.out.println("Run the file as: java PuzzleGenerator OUT_DIR COUNT ROWS COLS [SEED] [--density D] [--unique] [--solution] [--clues]");
+			return;
+		}
+
+		File dir = new File(positional.get(0));
+		int count = Integer.parseInt(positional.get(1));
+		int rows = Integer.parseInt(positional.get(2));
+		int cols = Integer.parseInt(positional.get(3));
+		long seed = positional.size() == 5 ? Long.parseLong(positional.get(4)) : 310;
+
+		long start = System.nanoTime();
+		List<File> files = generateCorpus(dir, count, rows, cols, seed, density, unique, withTents, withClues);
+		System.out.println("wrote " + files.size() + " puzzles of " + rows + " x " + cols + " to " + dir
+			+ " in " + (System.nanoTime() - start) / 1000000 + " ms" + (files.size() < count ? ", " + (count - files.size()) + " skipped" : ""));
+	}
+}
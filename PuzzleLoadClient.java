@@ -0,0 +1,194 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// this is a load generator for PuzzleServer: it opens many sessions at once,
+// each loads a puzzle and plays random moves, and reports the p50/p99
+// latency of every command type
+// TO RUN: java PuzzleLoadClient [PORT [SESSIONS [MOVES [PUZZLE_FILE]]]]
+// PORT 0 starts a server inside this process first, serving the directory
+// of PUZZLE_FILE; another server must have PUZZLE_FILE in its puzzle directory
+// For example, java PuzzleLoadClient 0 1000 200 puzzles/puzzle6.txt
+
+class PuzzleLoadClient{
+
+	static final String[] COMMANDS = {"load", "add", "remove", "check", "render"};
+
+	// latencies in ns, one list per command type, shared by all sessions
+	private final List<List<Long>> latencies = new ArrayList<>();
+	private int failedSessions = 0;
+
+	private final int port;
+	private final String puzzle;
+	private final int moves;
+
+	/**
+	 * Constructor
+	 * @param port server port on localhost
+	 * @param puzzle puzzle file every session loads, relative to the
+	 *   server's puzzle directory
+	 * @param moves commands per session after the load
+	 */
+	public PuzzleLoadClient(int port, String puzzle, int moves){
+		this.port = port;
+		this.puzzle = puzzle;
+		this.moves = moves;
+		for (int i = 0; i < COMMANDS.length; i++){
+			latencies.add(new ArrayList<Long>());
+		}
+	}
+
+	/**
+	 * Run the given number of sessions concurrently and wait for all of them
+	 * @param numSessions number of sessions
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void run(int numSessions) throws InterruptedException{
+		ExecutorService pool = PuzzleServer.newSessionExecutor();
+		for (int i = 0; i < numSessions; i++){
+			final long seed = i;
+			pool.execute(new Runnable(){
+				public void run(){
+					runSession(seed);
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.HOURS);
+	}
+
+	private void runSession(long seed){
+		Random rand = new Random(seed);
+		List<List<Long>> mine = new ArrayList<>();
+		for (int i = 0; i < COMMANDS.length; i++){
+			mine.add(new ArrayList<Long>());
+		}
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()))){
+			socket.setTcpNoDelay(true);
+			if (!send(out, in, 0, "load " + puzzle, mine).equals("OK")){
+				throw new IOException("load failed");
+			}
+			int rows = 0, cols = 0;
+			String board = send(out, in, 4, "render", mine);
+			for (String row : board.split("\n")){
+				if (!row.equals("END")){
+					rows++;
+					cols = row.trim().split("\\s+").length;
+				}
+			}
+			for (int i = 0; i < moves; i++){
+				int kind = 1 + rand.nextInt(100) / 40;	// add 40%, remove 40%, check 20%
+				if (i % 50 == 49){
+					kind = 4;	// render once in a while
+				}
+				String line = COMMANDS[kind];
+				if (kind == 1 || kind == 2){
+					line += " " + rand.nextInt(Math.max(1, rows)) + " " + rand.nextInt(Math.max(1, cols));
+				}
+				send(out, in, kind, line, mine);
+			}
+			out.write("quit\n");
+			out.flush();
+		}
+		catch(IOException e) {
+			synchronized(this){
+				failedSessions++;
+			}
+			return;
+		}
+
+		synchronized(this){
+			for (int i = 0; i < COMMANDS.length; i++){
+				latencies.get(i).addAll(mine.get(i));
+			}
+		}
+	}
+
+	// send one command, read its full reply and record how long it took
+	private static String send(Writer out, BufferedReader in, int kind, String line, List<List<Long>> times) throws IOException{
+		long start = System.nanoTime();
+		out.write(line);
+		out.write('\n');
+		out.flush();
+		String reply = in.readLine();
+		if (reply == null){
+			throw new IOException("server closed the session");
+		}
+		if (kind == 4 && !reply.equals("END")){
+			StringBuilder sb = new StringBuilder(reply);
+			String next;
+			while ((next = in.readLine()) != null){
+				sb.append('\n').append(next);
+				if (next.equals("END")){
+					break;
+				}
+			}
+			reply = sb.toString();
+		}
+		times.get(kind).add(System.nanoTime() - start);
+		return reply;
+	}
+
+	/**
+	 * Print count, p50 and p99 latency for every command type
+	 */
+	public void report(){
+		System.out.println(String.format("%-8s %10s %12s %12s", "command", "count", "p50 (us)", "p99 (us)"));
+		for (int i = 0; i < COMMANDS.length; i++){
+			List<Long> times = latencies.get(i);
+			if (times.isEmpty()){
+				continue;
+			}
+			Collections.sort(times);
+			System.out.println(String.format("%-8s %10d %12.1f %12.1f", COMMANDS[i], times.size(),
+				percentile(times, 0.50) / 1000.0, percentile(times, 0.99) / 1000.0));
+		}
+		if (failedSessions > 0){
+			System.out.println(failedSessions + " sessions failed");
+		}
+	}
+
+	private static long percentile(List<Long> sorted, double p){
+		int at = (int)Math.ceil(p * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(sorted.size() - 1, at)));
+	}
+
+	public static void main(String[] args) throws Exception{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : PuzzleServer.DEFAULT_PORT;
+		int numSessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int moves = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		String puzzle = args.length > 3 ? args[3] : "puzzles/puzzle6.txt";
+
+		PuzzleServer server = null;
+		if (port == 0){
+			server = new PuzzleServer(0, new File(puzzle).getAbsoluteFile().getParentFile());
+			port = server.getPort();
+			final PuzzleServer toServe = server;
+			Thread t = new Thread(new Runnable(){
+				public void run(){
+					toServe.serve();
+				}
+			});
+			t.setDaemon(true);
+			t.start();
+		}
+
+		long start = System.nanoTime();
+		// the server only loads files from its puzzle directory, by name
+		PuzzleLoadClient client = new PuzzleLoadClient(port, new File(puzzle).getName(), moves);
+		client.run(numSessions);
+		long elapsed = System.nanoTime() - start;
+		System.out.println(numSessions + " sessions x " + moves + " moves in " + elapsed / 1000000 + " ms");
+		client.report();
+
+		if (server != null){
+			server.close();
+		}
+	}
+}
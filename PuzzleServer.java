@@ -0,0 +1,147 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// this is a local server that hosts many tent-tree games at once:
+// every TCP connection is its own PuzzleSession with its own board,
+// speaking the line protocol described in PuzzleSession; clients can only
+// load puzzle files under PUZZLE_DIR
+// TO RUN: java PuzzleServer [PORT [PUZZLE_DIR]]   (default 7310 puzzles)
+// For example, java PuzzleServer 7310 and then java PuzzleLoadClient
+
+class PuzzleServer{
+
+	static final int DEFAULT_PORT = 7310;
+
+	// longest pause after accept() fails
+	private static final long MAX_BACKOFF_MS = 1000;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService sessions = newSessionExecutor();
+	private final File puzzleDir;
+
+	/**
+	 * Constructor, listens on the loopback interface only
+	 * @param port TCP port, 0 for any free port
+	 * @param puzzleDir directory holding the puzzles clients may load
+	 * @throws IOException if the port cannot be opened
+	 */
+	public PuzzleServer(int port, File puzzleDir) throws IOException{
+		this.puzzleDir = puzzleDir;
+		serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * Get the port the server listens on
+	 * @return port
+	 */
+	public int getPort(){
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accept connections until close() is called, one session per connection.
+	 * Other accept() failures (e.g. too many open files) are reported, and the
+	 * server waits a little longer after each one in a row before it retries
+	 */
+	public void serve(){
+		long backoff = 0;
+		while (!serverSocket.isClosed()){
+			try {
+				final Socket socket = serverSocket.accept();
+				backoff = 0;
+				sessions.execute(new Runnable(){
+					public void run(){
+						runSession(socket);
+					}
+				});
+			}
+			catch(IOException e) {
+				if (serverSocket.isClosed()){
+					return;
+				}
+				backoff = Math.min(MAX_BACKOFF_MS, Math.max(10, 2 * backoff));
+				System.err.println("accept failed, retrying in " + backoff + " ms: " + e);
+				try {
+					Thread.sleep(backoff);
+				}
+				catch(InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting connections and stop all sessions
+	 */
+	public void close(){
+		try {
+			serverSocket.close();
+		}
+		catch(IOException e) {
+			// already closed
+		}
+		sessions.shutdownNow();
+	}
+
+	private void runSession(Socket socket){
+		PuzzleSession session = new PuzzleSession(puzzleDir);
+		try (Socket s = socket;
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+			Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream()))){
+			s.setTcpNoDelay(true);
+			String line;
+			while ((line = in.readLine()) != null){
+				if (line.trim().isEmpty()){
+					continue;
+				}
+				String reply = session.execute(line);
+				out.write(reply);
+				out.write('\n');
+				out.flush();
+				if (PuzzleSession.isFinal(reply)){
+					return;
+				}
+			}
+		}
+		catch(IOException e) {
+			// client went away, the session simply ends
+		}
+	}
+
+	// one thread per session: virtual threads when the JVM has them (Java 21+),
+	// otherwise a cached pool of platform threads
+	static ExecutorService newSessionExecutor(){
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)m.invoke(null);
+		}
+		catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	public static void main(String[] args){
+		if (args.length > 2){
+			System.out.println("Run the file as: java PuzzleServer [PORT [PUZZLE_DIR]]");
+			return;
+		}
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		File puzzleDir = new File(args.length > 1 ? args[1] : "puzzles");
+
+		try {
+			PuzzleServer server = new PuzzleServer(port, puzzleDir);
+			System.out.println("Serving tent-tree sessions on localhost:" + server.getPort() + ", puzzles from " + puzzleDir);
+			server.serve();
+		}
+		catch(IOException e) {
+			System.out.println("Cannot open port " + port + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is one game session driven by a simple line protocol instead of
+ * the interactive menu of PA2. Every command is one line and gets one reply:
+ *
+ *   load FILE      -> OK | ERR Invalid file
+ *   add ROW COL    -> OK | FAIL
+ *   remove ROW COL -> OK | FAIL
+ *   check          -> STATUS n   (n as returned by TentTree.checkStatus())
+ *   render         -> the board followed by a line "END"
+ *   quit           -> BYE
+ *
+ * Anything else, or a move before a puzzle is loaded, is answered with ERR.
+ * FILE is a path under the session's puzzle directory; anything outside of it
+ * is refused. A file that cannot be loaded gets the same fixed reply whatever
+ * the reason, so no text of a file ever goes back to the client.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class PuzzleSession{
+
+	private TentTree game;	// null until a puzzle is loaded
+	private final File puzzleDir;	// load only reads files under it
+
+	/**
+	 * Constructor
+	 * @param puzzleDir directory holding the puzzles that may be loaded
+	 */
+	public PuzzleSession(File puzzleDir){
+		this.puzzleDir = puzzleDir;
+	}
+
+	/**
+	 * Constructor of a session loading from puzzles/
+	 */
+	public PuzzleSession(){
+		this(new File("puzzles"));
+	}
+
+	/**
+	 * Get the board of this session
+	 * @return board, or null if nothing has been loaded
+	 */
+	public TentTree getGame(){
+		return game;
+	}
+
+	/**
+	 * Execute one command line
+	 * @param line command
+	 * @return reply, without a trailing new line
+	 */
+	public String execute(String line){
+		String[] words = line.trim().split("\\s+");
+		String command = words[0];
+
+		if (command.equals("load") && words.length == 2){
+			try {
+				File file = puzzleFile(words[1]);
+				if (file == null){
+					return "ERR Invalid file";
+				}
+				game = PA2.loadGame(file.getPath());
+				return "OK";
+			}
+			catch(IOException | RuntimeException e) {
+				return "ERR Invalid file";
+			}
+		}
+		if (command.equals("quit")){
+			return "BYE";
+		}
+		if (game == null){
+			return "ERR no puzzle loaded!";
+		}
+		if ((command.equals("add") || command.equals("remove")) && words.length == 3){
+			Position pos;
+			try {
+				pos = new Position(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+			}
+			catch(NumberFormatException e) {
+				return "ERR Invalid row/col selection!";
+			}
+			boolean changed = command.equals("add") ? game.addTent(pos) : game.removeTent(pos);
+			return changed ? "OK" : "FAIL";
+		}
+		if (command.equals("check")){
+			return "STATUS " + game.checkStatus();
+		}
+		if (command.equals("render")){
+			return game + "END";
+		}
+		return "ERR unknown command: " + line;
+	}
+
+	// the file a load names, or null if it is not under the puzzle directory
+	private File puzzleFile(String name) throws IOException{
+		File dir = puzzleDir.getCanonicalFile();
+		File file = new File(dir, name).getCanonicalFile();
+		return file.toPath().startsWith(dir.toPath()) && !file.equals(dir) ? file : null;
+	}
+
+	/**
+	 * Check whether a reply ends the session
+	 * @param reply reply from execute()
+	 * @return boolean
+	 */
+	public static boolean isFinal(String reply){
+		return reply.equals("BYE");
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+
+	public static void main(String[] args){
+		PuzzleSession session = new PuzzleSession();
+		if (session.execute("add 0 0").startsWith("ERR") && session.execute("load puzzle1.txt").equals("OK")){
+			System.out.println("Yay 1");
+		}
+		if (session.execute("add 0 0").equals("OK") && session.execute("add 0 0").equals("FAIL")
+			&& session.execute("remove 0 0").equals("OK") && session.execute("remove 0 0").equals("FAIL")){
+			System.out.println("Yay 2");
+		}
+		if (session.execute("check").startsWith("STATUS ") && session.execute("render").endsWith("END")
+			&& session.execute("jump").startsWith("ERR") && isFinal(session.execute("quit"))){
+			System.out.println("Yay 3");
+		}
+
+		// only files under the puzzle directory, and no file contents in errors
+		String[] refused = {"load ../PA2.java", "load /etc/passwd", "load ../puzzles/../TentTree.java", "load invalid1.txt", "load nope.txt"};
+		boolean safe = new PuzzleSession().execute("load ../puzzles/puzzle2.txt").equals("OK");
+		for (String command : refused){
+			safe &= new PuzzleSession().execute(command).equals("ERR Invalid file");
+		}
+		if (safe){
+			System.out.println("Yay 4");
+		}
+	}
+}
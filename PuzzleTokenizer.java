@@ -0,0 +1,362 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class reads the puzzle text format line by line straight from a byte
+ * buffer over an InputStream. Lines starting with '#' are skipped without being
+ * copied, numbers are parsed in place, and a symbol is compared with the bytes of
+ * the tent/tree symbols instead of being turned into a String. Only the header
+ * symbols (rest()) ever become Strings.
+ *
+ * The current line stays in the buffer; a cursor walks it field by field
+ * (nextInt(), skip(), restEquals(), rest()). error() builds the exception for a
+ * bad field with its line and column, e.g. "invalid index in file! (line 7, col 1)".
+ * One tokenizer can be reused for many streams (reset()), keeping its buffer.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class PuzzleTokenizer{
+
+	private InputStream in;
+	private byte[] buf;
+	private long base = 0;	// offset in the stream of buf[0]
+	private int limit = 0;	// bytes of buf holding input
+	private boolean eof = false;
+
+	private int lineStart = 0, lineEnd = 0;	// current line, without "\r\n"
+	private int next = 0;	// start of the line after it
+	private int pos = 0;	// cursor in the current line
+	private int fieldStart = 0;	// start of the last field read, for error()
+	private int lineNum = 0;
+
+	/**
+	 * Constructor
+	 * @param in input, read in 64 KB blocks
+	 */
+	public PuzzleTokenizer(InputStream in){
+		this(in, 1 << 16);
+	}
+
+	/**
+	 * Constructor
+	 * @param in input
+	 * @param bufferSize initial buffer size; it grows to fit the longest line
+	 */
+	public PuzzleTokenizer(InputStream in, int bufferSize){
+		this.buf = new byte[Math.max(16, bufferSize)];
+		reset(in);
+	}
+
+	/**
+	 * Start reading another stream, keeping the buffer
+	 * @param in input
+	 */
+	public void reset(InputStream in){
+		this.in = in;
+		limit = next = pos = fieldStart = lineStart = lineEnd = lineNum = 0;
+		base = 0;
+		eof = false;
+	}
+
+	/**
+	 * Move to the next line not starting with '#'. At the end of the input the
+	 * current line becomes empty, just like a blank line.
+	 * @return false at the end of the input
+	 * @throws IOException if the stream fails
+	 */
+	public boolean nextLine() throws IOException{
+		while (readLine()){
+			if (lineEnd == lineStart || buf[lineStart] != '#'){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// make the line at next the current line; false if there is none
+	private boolean readLine() throws IOException{
+		int scanned = 0;	// bytes after next known to hold no '\n'
+		while (true){
+			for (int i = next + scanned; i < limit; i++){
+				if (buf[i] == '\n'){
+					setLine(next, i, i + 1);
+					return true;
+				}
+			}
+			scanned = limit - next;
+			if (eof){
+				if (scanned == 0){
+					lineStart = lineEnd = pos = fieldStart = next;
+					return false;
+				}
+				setLine(next, limit, limit);	// last line without '\n'
+				return true;
+			}
+			fill();
+		}
+	}
+
+	private void setLine(int start, int end, int after){
+		lineNum++;
+		lineStart = pos = fieldStart = start;
+		lineEnd = end > start && buf[end - 1] == '\r' ? end - 1 : end;
+		next = after;
+	}
+
+	// read more input after the unfinished line at next: moves that line to
+	// the front of the buffer, or doubles the buffer if it fills it all
+	private void fill() throws IOException{
+		int keep = limit - next;
+		if (next > 0){
+			System.arraycopy(buf, next, buf, 0, keep);
+		}
+		else if (keep == buf.length){
+			buf = Arrays.copyOf(buf, 2 * buf.length);
+		}
+		int shift = next;
+		base += shift;
+		next = 0;
+		lineStart -= shift;
+		lineEnd -= shift;
+		pos -= shift;
+		fieldStart -= shift;
+		limit = keep;
+		int n = in.read(buf, limit, buf.length - limit);
+		if (n < 0){
+			eof = true;
+		}
+		else {
+			limit += n;
+		}
+	}
+
+	/**
+	 * Get the number of the current line, from 1
+	 * @return line number
+	 */
+	public int lineNumber(){ return lineNum;}
+
+	/**
+	 * Get the offset in the stream where the current line starts
+	 * @return offset in bytes
+	 */
+	public long lineOffset(){ return base + lineStart;}
+
+	/**
+	 * Get the column of the cursor, from 1
+	 * @return column
+	 */
+	public int column(){ return pos - lineStart + 1;}
+
+	/**
+	 * Check whether the current line is empty (or the input is over)
+	 * @return boolean
+	 */
+	public boolean isEmpty(){ return lineEnd == lineStart;}
+
+	/**
+	 * Check whether the cursor is at the end of the line
+	 * @return boolean
+	 */
+	public boolean atEnd(){ return pos == lineEnd;}
+
+	/**
+	 * Count the commas of the current line
+	 * @return count
+	 */
+	public int commas(){
+		int n = 0;
+		for (int i = lineStart; i < lineEnd; i++){
+			if (buf[i] == ','){
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Move the cursor past text if the line continues with it
+	 * @param text ASCII text
+	 * @return false (and the cursor stays) if the line does not continue with text
+	 */
+	public boolean skip(String text){
+		if (lineEnd - pos < text.length()){
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++){
+			if (buf[pos + i] != text.charAt(i)){
+				return false;
+			}
+		}
+		pos += text.length();
+		return true;
+	}
+
+	/**
+	 * Read a decimal int ("-12", "+3", "7") ending at a ',' or the end of the
+	 * line, as Integer.parseInt() would
+	 * @param message message of the exception if there is no such number
+	 * @return number
+	 */
+	public int nextInt(String message){
+		fieldStart = pos;
+		boolean negative = false;
+		if (pos < lineEnd && (buf[pos] == '-' || buf[pos] == '+')){
+			negative = buf[pos++] == '-';
+		}
+		long value = 0, max = negative ? -(long)Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int digits = 0;
+		for (; pos < lineEnd && buf[pos] != ','; pos++, digits++){
+			int d = buf[pos] - '0';
+			if (d < 0 || d > 9 || (value = value * 10 + d) > max){
+				throw error(message);
+			}
+		}
+		if (digits == 0){
+			throw error(message);
+		}
+		return (int)(negative ? -value : value);
+	}
+
+	/**
+	 * Check whether the rest of the line is exactly these bytes
+	 * @param symbol bytes of a symbol
+	 * @return boolean
+	 */
+	public boolean restEquals(byte[] symbol){
+		fieldStart = pos;
+		if (lineEnd - pos != symbol.length){
+			return false;
+		}
+		for (int i = 0; i < symbol.length; i++){
+			if (buf[pos + i] != symbol[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the rest of the line
+	 * @return text, UTF-8
+	 */
+	public String rest(){
+		fieldStart = pos;
+		return new String(buf, pos, lineEnd - pos, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Build the exception for a bad field: message plus the line and the column
+	 * where the last field read starts
+	 * @param message message
+	 * @return exception, to throw
+	 */
+	public RuntimeException error(String message){
+		return error(message, fieldStart - lineStart + 1);
+	}
+
+	/**
+	 * Build the exception for a bad field
+	 * @param message message
+	 * @param column column of the field, from 1
+	 * @return exception, to throw
+	 */
+	public RuntimeException error(String message, int column){
+		return new RuntimeException(message + " (line " + lineNum + ", col " + column + ")");
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// also times PA2.readGame() against line strings from Scanner + split
+	// on a generated multi-megabyte puzzle. Usage: java PuzzleTokenizer [SIDE]
+
+	// the old way: one String per line, split, Integer.parseInt
+	private static TentTree scannerLoad(File file) throws IOException{
+		try (Scanner scanner = new Scanner(file)){
+			int numRows = Integer.parseInt(scannerLine(scanner));
+			int numCols = Integer.parseInt(scannerLine(scanner));
+			TentTree game = new TentTree(numRows, numCols);
+			for (String line = scannerLine(scanner); !line.equals(""); line = scannerLine(scanner)){
+				String[] parts = line.split(",");
+				game.set(new Position(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])), parts[2]);
+			}
+			return game;
+		}
+	}
+
+	private static String scannerLine(Scanner scanner){
+		while (scanner.hasNextLine()){
+			String line = scanner.nextLine();
+			if (!line.startsWith("#"))
+				return line;
+		}
+		return "";
+	}
+
+	public static void main(String[] args) throws IOException{
+		// the buffer starts at 16 bytes and has to grow for the long line
+		String text = "# size\r\n12\r\n#\n-7,+3,TreeTreeTreeTreeTree\n\n2147483647\n,x";
+		PuzzleTokenizer tok = new PuzzleTokenizer(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 4);
+		boolean ok = tok.nextLine() && tok.nextInt("bad") == 12 && tok.atEnd() && tok.lineNumber() == 2;
+		ok &= tok.nextLine() && tok.commas() == 2 && tok.nextInt("bad") == -7 && tok.skip(",") && tok.nextInt("bad") == 3
+			&& tok.skip(",") && tok.column() == 7 && tok.restEquals("TreeTreeTreeTreeTree".getBytes()) && tok.rest().equals("TreeTreeTreeTreeTree");
+		ok &= tok.nextLine() && tok.isEmpty() && tok.nextLine() && tok.nextInt("bad") == Integer.MAX_VALUE && tok.lineOffset() == 42;
+		ok &= tok.nextLine() && !tok.nextLine() && tok.isEmpty();
+		if (ok){
+			System.out.println("Yay 1");
+		}
+
+		String[] bad = {"2147483648", "+", "1 ", "-x"};
+		int errors = 0;
+		for (String s : bad){
+			tok.reset(new ByteArrayInputStream(("#\n" + s).getBytes()));
+			try {
+				tok.nextLine();
+				tok.nextInt("invalid file format!");
+			}
+			catch(RuntimeException e) {
+				errors += e.getMessage().equals("invalid file format! (line 2, col 1)") ? 1 : 0;
+			}
+		}
+		if (errors == bad.length){
+			System.out.println("Yay 2");
+		}
+
+		// the loader reports where the problem is
+		String[] messages = new String[2];
+		for (int i = 1; i <= 2; i++){
+			try {
+				PA2.readGame("puzzles/invalid" + i + ".txt");
+			}
+			catch(RuntimeException e) {
+				messages[i-1] = e.getMessage();
+			}
+		}
+		if (messages[0].matches("invalid symbol in file! \\(line \\d+, col 5\\)")
+			&& messages[1].matches("invalid index in file! \\(line \\d+, col 1\\)")){
+			System.out.println("Yay 3");
+		}
+
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+		File file = File.createTempFile("tokenizer", ".txt");
+		file.deleteOnExit();
+		new PuzzleGenerator(side, side, 49, 0.2).write(file, true, false);
+		double mb = file.length() / 1e6;
+		long best = Long.MAX_VALUE, bestOld = Long.MAX_VALUE;
+		boolean same = true;
+		for (int round = 0; round < 3; round++){
+			long start = System.nanoTime();
+			TentTree game = PA2.readGame(file.getPath());
+			long mid = System.nanoTime();
+			TentTree old = scannerLoad(file);
+			long end = System.nanoTime();
+			best = Math.min(best, mid - start);
+			bestOld = Math.min(bestOld, end - mid);
+			same &= game.getOccupiedCells().length == old.getOccupiedCells().length && game.zobristHash() == old.zobristHash();
+		}
+		System.out.println(String.format("%.1f MB, %d x %d: tokenizer %.0f ms (%.0f MB/s), Scanner + split %.0f ms (%.0f MB/s)%s",
+			mb, side, side, best / 1e6, mb / (best / 1e9), bestOld / 1e6, mb / (bestOld / 1e9), same ? "" : " (boards differ!)"));
+	}
+}
@@ -0,0 +1,444 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class shares one live TentTree between a writer that applies moves and
+ * any number of readers (a renderer, a validator, a hint engine, ...).
+ *
+ * Readers never take a lock. After every write the writer publishes a new
+ * immutable version of the board: a PersistentTentTree (plus the clues) behind
+ * a volatile reference. The writer keeps that version up to date from the
+ * board's ChangeStream, so a write only adds the O(log n) trie nodes of the
+ * cells it changed. A read takes the current version and runs against a
+ * TentTree copy of it, built once per version by the first reader that needs
+ * it and then shared by every reader of that version. Nobody ever changes that
+ * copy, so a read sees one whole state of the board no matter what the writer
+ * does meanwhile, and the writer never waits for a reader.
+ *
+ * Writers take the write lock of a StampedLock, which only orders writers.
+ * Built with versions off, every read takes the read lock on the live board
+ * instead (for comparison, see ContentionBenchmark).
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class SharedTentTree{
+
+	/**
+	 * A read-only view of the board; it must not change the board it is given
+	 * @param <R> result type
+	 */
+	interface Reader<R>{
+		R read(TentTree game);
+	}
+
+	/**
+	 * A change of the board, applied as one step: readers see all of it or none
+	 */
+	interface Update{
+		void apply(TentTree game);
+	}
+
+	// one published state of the board
+	private static final class Version{
+		final PersistentTentTree cells;
+		final int[] rowClues, colClues;	// null without clues
+		private TentTree view;	// built by the first reader
+
+		Version(PersistentTentTree cells, int[] rowClues, int[] colClues){
+			this.cells = cells;
+			this.rowClues = rowClues;
+			this.colClues = colClues;
+		}
+
+		// a new mutable board holding this version
+		TentTree build(){
+			TentTree board = cells.toTentTree();
+			if (rowClues != null){
+				board.setClues(rowClues, colClues);
+			}
+			return board;
+		}
+	}
+
+	private final TentTree game;
+	private final StampedLock lock = new StampedLock();
+	private final boolean versioned;
+	private volatile long writes = 0;
+
+	// writer side: the cells of the next version, kept up to date from the
+	// board's changes
+	private final ChangeStream changes;
+	private PersistentTentTree cells;
+	private boolean lost = false;	// changes were dropped: rebuild the cells
+	private volatile Version current;
+
+	// read statistics
+	private final LongAdder reads = new LongAdder();
+	private final LongAdder viewsBuilt = new LongAdder();
+	private final LongAdder lockedReads = new LongAdder();
+
+	/**
+	 * Constructor; the board must not be used directly any more
+	 * @param game board
+	 */
+	public SharedTentTree(TentTree game){
+		this(game, true);
+	}
+
+	/**
+	 * Constructor
+	 * @param game board, must not be used directly any more
+	 * @param versioned false to make every read take the read lock on the
+	 *   live board instead of reading a published version (for comparison)
+	 */
+	public SharedTentTree(TentTree game, boolean versioned){
+		this.game = game;
+		this.versioned = versioned;
+		if (!versioned){
+			this.changes = null;
+			return;
+		}
+		this.cells = PersistentTentTree.of(game);
+		this.changes = new ChangeStream(game, 1024, 1024, false, false);
+		changes.subscribe(new ChangeStream.Listener(){
+			public void onChanges(ChangeStream.Batch batch){
+				lost |= batch.overflowed();
+				for (int i = 0; i < batch.size(); i++){
+					Position pos = batch.getPosition(i);
+					byte code = batch.getNewCode(i);
+					if (code == CellCode.TENT)
+						cells = cells.withTent(pos);
+					else if (code == CellCode.TREE)
+						cells = cells.withTree(pos);
+					else
+						cells = cells.withoutTent(pos);
+				}
+			}
+		});
+		publish();
+	}
+
+	// make the state of the board after a write the current version
+	private void publish(){
+		while (changes.deliver() > 0){
+		}
+		if (lost){
+			cells = PersistentTentTree.of(game);
+			lost = false;
+		}
+		int[] rows = null, cols = null;
+		if (game.hasClues()){
+			rows = new int[game.numRows()];
+			cols = new int[game.numCols()];
+			for (int r = 0; r < rows.length; r++){
+				rows[r] = game.rowClue(r);
+			}
+			for (int c = 0; c < cols.length; c++){
+				cols[c] = game.colClue(c);
+			}
+		}
+		current = new Version(cells, rows, cols);
+	}
+
+	// the shared read-only board of a version
+	private TentTree view(Version version){
+		synchronized (version){
+			if (version.view == null){
+				version.view = version.build();
+				viewsBuilt.increment();
+			}
+			return version.view;
+		}
+	}
+
+	/**
+	 * Run a read against a consistent state of the board, without waiting
+	 * for the writer
+	 * @param reader read-only view
+	 * @param <R> result type
+	 * @return result of the reader
+	 */
+	public <R> R read(Reader<R> reader){
+		reads.increment();
+		if (versioned){
+			return reader.read(view(current));
+		}
+		lockedReads.increment();
+		long stamp = lock.readLock();
+		try {
+			return reader.read(game);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Apply a change as one step
+	 * @param update change
+	 */
+	public void write(Update update){
+		long stamp = lock.writeLock();
+		try {
+			update.apply(game);
+			if (versioned){
+				publish();
+			}
+			writes++;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Add a tent
+	 * @param pos position
+	 * @return boolean, as TentTree.addTent()
+	 */
+	public boolean addTent(final Position pos){
+		final boolean[] done = new boolean[1];
+		write(new Update(){
+			public void apply(TentTree game){
+				done[0] = game.addTent(pos);
+			}
+		});
+		return done[0];
+	}
+
+	/**
+	 * Remove a tent
+	 * @param pos position
+	 * @return boolean, as TentTree.removeTent()
+	 */
+	public boolean removeTent(final Position pos){
+		final boolean[] done = new boolean[1];
+		write(new Update(){
+			public void apply(TentTree game){
+				done[0] = game.removeTent(pos);
+			}
+		});
+		return done[0];
+	}
+
+	/**
+	 * Get the symbol at a position
+	 * @param pos position
+	 * @return symbol, or null
+	 */
+	public String get(final Position pos){
+		return read(new Reader<String>(){
+			public String read(TentTree game){
+				return game.get(pos);
+			}
+		});
+	}
+
+	/**
+	 * Get the Zobrist hash of the board
+	 * @return TentTree.zobristHash() of one state of the board
+	 */
+	public long zobristHash(){
+		return read(new Reader<Long>(){
+			public Long read(TentTree game){
+				return game.zobristHash();
+			}
+		});
+	}
+
+	/**
+	 * Get the number of tents in a row
+	 * @param row row
+	 * @return TentTree.rowTentCount() of one state of the board
+	 */
+	public int rowTentCount(final int row){
+		return read(new Reader<Integer>(){
+			public Integer read(TentTree game){
+				return game.rowTentCount(row);
+			}
+		});
+	}
+
+	/**
+	 * Render the board
+	 * @return TentTree.toString() of one state of the board
+	 */
+	public String render(){
+		return read(new Reader<String>(){
+			public String read(TentTree game){
+				// readers must not fill the render cache: several of them
+				// may render the same board at once
+				return game.renderUncached();
+			}
+		});
+	}
+
+	/**
+	 * Check the status of the board
+	 * @return status and issue of one state of the board: element 0 is the code
+	 *   of TentTree.checkStatus() as a string, element 1 the issue
+	 */
+	public String[] checkStatus(){
+		return read(new Reader<String[]>(){
+			public String[] read(TentTree game){
+				String[] detail = new String[1];
+				int status = game.checkStatus(detail);
+				return new String[]{String.valueOf(status), detail[0]};
+			}
+		});
+	}
+
+	/**
+	 * Copy one state of the board, e.g. for a solver that changes it
+	 * @return private copy
+	 */
+	public TentTree snapshot(){
+		if (versioned){
+			reads.increment();
+			return current.build();
+		}
+		return read(new Reader<TentTree>(){
+			public TentTree read(TentTree game){
+				TentTree copy = new TentTree(game.numRows(), game.numCols(), game.getTentSymbol(), game.getTreeSymbol());
+				if (game.hasClues()){
+					int[] rows = new int[game.numRows()], cols = new int[game.numCols()];
+					for (int r = 0; r < rows.length; r++){
+						rows[r] = game.rowClue(r);
+					}
+					for (int c = 0; c < cols.length; c++){
+						cols[c] = game.colClue(c);
+					}
+					copy.setClues(rows, cols);
+				}
+				for (Object o : game.getOccupiedCells()){
+					Position pos = (Position)o;
+					copy.set(pos, game.get(pos));
+				}
+				return copy;
+			}
+		});
+	}
+
+	/**
+	 * Get the number of changes applied so far
+	 * @return writes
+	 */
+	public long getWrites(){ return writes;}
+
+	/**
+	 * Get the number of reads so far
+	 * @return reads
+	 */
+	public long getReads(){ return reads.sum();}
+
+	/**
+	 * Get the number of versions that readers had to turn into a TentTree
+	 * @return views built
+	 */
+	public long getViewsBuilt(){ return viewsBuilt.sum();}
+
+	/**
+	 * Get the number of reads that took the read lock (only without versions)
+	 * @return locked reads
+	 */
+	public long getLockedReads(){ return lockedReads.sum();}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// see ContentionBenchmark for 1 writer and N readers
+
+	public static void main(String[] args) throws InterruptedException{
+		TentTree game = new TentTree(4, 4);
+		game.addTree(new Position(1, 1));
+		final SharedTentTree shared = new SharedTentTree(game);
+		if (shared.addTent(new Position(0, 1)) && "X".equals(shared.get(new Position(0, 1)))
+			&& shared.checkStatus()[0].equals("1") && shared.getWrites() == 1 && shared.rowTentCount(0) == 1){
+			System.out.println("Yay 1");
+		}
+
+		TentTree copy = shared.snapshot();
+		shared.removeTent(new Position(0, 1));
+		if (copy.hasTent(new Position(0, 1)) && shared.get(new Position(0, 1)) == null
+			&& shared.checkStatus()[1].equals("tree at <1,1> has no tent yet") && shared.zobristHash() == game.zobristHash()){
+			System.out.println("Yay 2");
+		}
+
+		// trees come in pairs, so a consistent board never has an odd count
+		final TentTree big = new TentTree(64, 64);
+		final SharedTentTree pairs = new SharedTentTree(big);
+		final boolean[] torn = new boolean[1];
+		Thread reader = new Thread(){
+			public void run(){
+				for (int i = 0; i < 2000; i++){
+					int count = pairs.read(new Reader<Integer>(){
+						public Integer read(TentTree game){
+							return game.getOccupiedCells().length;
+						}
+					});
+					// both trees of a pair go in the same row
+					int row = pairs.read(new Reader<Integer>(){
+						public Integer read(TentTree game){
+							int r = (int)(game.zobristHash() & 31);
+							return game.occupiedInRow(r);
+						}
+					});
+					torn[0] |= count % 2 != 0 || row % 2 != 0;
+				}
+			}
+		};
+		reader.start();
+		for (int i = 0; i < 2000; i++){
+			final int k = i;
+			pairs.write(new Update(){
+				public void apply(TentTree game){
+					game.addTree(new Position(k / 32, k % 32 * 2));
+					game.addTree(new Position(k / 32, k % 32 * 2 + 1));
+				}
+			});
+		}
+		reader.join();
+		if (!torn[0] && pairs.snapshot().getOccupiedCells().length == 4000){
+			System.out.println("Yay 3");
+		}
+
+		// a read finishes while a write is in progress, and sees the state
+		// before it; a write of more changes than the stream holds still
+		// publishes every one
+		final java.util.concurrent.CountDownLatch inWrite = new java.util.concurrent.CountDownLatch(1);
+		final java.util.concurrent.CountDownLatch readDone = new java.util.concurrent.CountDownLatch(1);
+		final SharedTentTree slow = new SharedTentTree(new TentTree(40, 40));
+		Thread writer = new Thread(){
+			public void run(){
+				slow.write(new Update(){
+					public void apply(TentTree game){
+						for (int r = 0; r < 40; r++){
+							for (int c = 0; c < 40; c++){
+								game.addTree(new Position(r, c));
+							}
+						}
+						inWrite.countDown();
+						try {
+							readDone.await();
+						}
+						catch(InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+		};
+		writer.start();
+		inWrite.await();
+		int during = slow.read(new Reader<Integer>(){
+			public Integer read(TentTree game){
+				return game.getOccupiedCells().length;
+			}
+		});
+		readDone.countDown();
+		writer.join();
+		if (during == 0 && slow.snapshot().getOccupiedCells().length == 1600 && slow.render().equals(slow.snapshot().toString())){
+			System.out.println("Yay 4");
+		}
+	}
+}
@@ -144,7 +144,7 @@ class SimpleList<T> implements Iterable<T>{
 			if (current == null){
 				return false;
 			}
-			else if (current.value == value){
+			else if (current.value.equals(value)){
 				return true;
 			}
 			current = current.next;
@@ -167,7 +167,7 @@ class SimpleList<T> implements Iterable<T>{
 
 		Node<T> current = head;
 		for (int i =0; i<size;i++){
-			if (current.value == value){
+			if (current.value.equals(value)){
 				return current.value;
 			}
 			current = current.next;
